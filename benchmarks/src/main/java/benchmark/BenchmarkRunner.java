@@ -0,0 +1,29 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the suite and writes machine-readable results.
+// Arguments: [result file] [dataset sizes...], e.g. results.json 10000 100000
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String resultFile = args.length > 0 ? args[0] : "benchmark-results.json";
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.include(HotPathBenchmark.class.getSimpleName())
+                .include(CsvBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile);
+        if (args.length > 1) {
+            String[] sizes = new String[args.length - 1];
+            System.arraycopy(args, 1, sizes, 0, sizes.length);
+            builder.param("rows", sizes);
+        }
+
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import database.CsvCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Parsing an appointments file: the old readLine + split(",") loop against CsvCodec.
+// Each benchmark reads the whole in-memory file once.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int patients = DatasetGenerator.patientCount(rows);
+        int doctors = DatasetGenerator.doctorCount(rows);
+        StringBuilder builder = new StringBuilder(rows * 64);
+        for (int i = 0; i < rows; i++) {
+            LocalDate date = DatasetGenerator.FIRST_DAY.plusDays(random.nextInt(DatasetGenerator.DAYS));
+            builder.append(CsvCodec.encode("APT" + i, "P" + random.nextInt(patients),
+                    DatasetGenerator.doctorId(random.nextInt(doctors)), date.toString(),
+                    DatasetGenerator.TIME_SLOTS[random.nextInt(DatasetGenerator.TIME_SLOTS.length)],
+                    "Checkup",
+                    DatasetGenerator.STATUSES[random.nextInt(DatasetGenerator.STATUSES.length)]))
+                    .append('\n');
+        }
+        text = builder.toString();
+    }
+
+    // One field read per line, as an index lookup would
+    @Benchmark
+    public void splitOneField(Blackhole blackhole) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(text), 1 << 16);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.split(",");
+            if (parts.length == 7) {
+                blackhole.consume(parts[3]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void codecOneField(Blackhole blackhole) throws IOException {
+        CsvCodec.read(new StringReader(text), record -> {
+            if (record.size() == 7) {
+                blackhole.consume(record.get(3));
+            }
+        });
+    }
+
+    // Every field read, as loading a full row would
+    @Benchmark
+    public void splitAllFields(Blackhole blackhole) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(text), 1 << 16);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            blackhole.consume(line.split(","));
+        }
+    }
+
+    @Benchmark
+    public void codecAllFields(Blackhole blackhole) throws IOException {
+        CsvCodec.read(new StringReader(text), record -> blackhole.consume(record.toArray()));
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.util.Random;
+
+// Writes synthetic patients.txt, doctors.txt and appointments.txt in the CSV layout.
+// No generated field needs quoting, so plain concatenation matches CsvCodec.encode.
+public class DatasetGenerator {
+    static final String[] SPECIALIZATIONS = {
+            "General Physician", "Dentist", "Dermatologist", "Cardiologist", "Pediatrician"
+    };
+    static final String[] TIME_SLOTS = {"9AM", "11AM", "2PM", "4PM", "6PM"};
+    static final String[] STATUSES = {"Pending", "Confirmed", "Completed", "Cancelled"};
+    static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    static final int DAYS = 365;
+
+    public static int patientCount(int rows) {
+        return rows;
+    }
+
+    public static int doctorCount(int rows) {
+        return Math.max(10, rows / 100);
+    }
+
+    public static String patientEmail(int i) {
+        return "patient" + i + "@example.com";
+    }
+
+    public static String doctorId(int i) {
+        return "D" + i;
+    }
+
+    // Reuses an existing dataset of the same size
+    public static File generate(File baseDir, int rows) throws IOException {
+        File dir = new File(baseDir, "dataset-" + rows);
+        if (new File(dir, "appointments.txt").exists()) {
+            return dir;
+        }
+        if (!dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        Random random = new Random(42);
+        int patients = patientCount(rows);
+        int doctors = doctorCount(rows);
+
+        try (PrintWriter out = writer(new File(dir, "patients.txt"))) {
+            for (int i = 0; i < patients; i++) {
+                out.println("P" + i + ",Patient " + i + "," + patientEmail(i) + ",pass" + i + ",No medical history");
+            }
+        }
+
+        try (PrintWriter out = writer(new File(dir, "doctors.txt"))) {
+            for (int i = 0; i < doctors; i++) {
+                out.println(doctorId(i) + ",Dr. Doctor" + i + ",doctor" + i + "@hospital.com,pass" + i + "," +
+                        SPECIALIZATIONS[i % SPECIALIZATIONS.length]);
+            }
+        }
+
+        try (PrintWriter out = writer(new File(dir, "appointments.txt"))) {
+            for (int i = 0; i < rows; i++) {
+                out.println("APT" + i + ",P" + random.nextInt(patients) + "," +
+                        doctorId(random.nextInt(doctors)) + "," +
+                        FIRST_DAY.plusDays(random.nextInt(DAYS)) + "," +
+                        TIME_SLOTS[random.nextInt(TIME_SLOTS.length)] + ",Checkup," +
+                        STATUSES[random.nextInt(STATUSES.length)]);
+            }
+        }
+        return dir;
+    }
+
+    private static PrintWriter writer(File file) throws IOException {
+        return new PrintWriter(new BufferedWriter(new FileWriter(file), 1 << 16));
+    }
+
+    // Arguments: [base dir] [row counts...]
+    public static void main(String[] args) throws IOException {
+        File baseDir = new File(args.length > 0 ? args[0] : "benchmark-data");
+        if (args.length < 2) {
+            System.out.println("Generated " + generate(baseDir, 10000));
+        }
+        for (int i = 1; i < args.length; i++) {
+            System.out.println("Generated " + generate(baseDir, Integer.parseInt(args[i])));
+        }
+    }
+}
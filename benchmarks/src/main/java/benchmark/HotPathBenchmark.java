@@ -0,0 +1,97 @@
+package benchmark;
+
+import appointments.Appointment;
+import appointments.AppointmentRepository;
+import database.FileHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import system.HealthCareSystem;
+import users.Doctor;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Booking, login and query hot paths against generated datasets.
+// Every dataset size runs in its own fork, so the static stores load that size only.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private HealthCareSystem system;
+    private AppointmentRepository repository;
+    private List<Doctor> doctors;
+    private int patients;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        File baseDir = new File(System.getProperty("benchmark.dataDir", "benchmark-data"));
+        File dir = DatasetGenerator.generate(baseDir, rows);
+
+        // Must be set before the stores are first touched
+        System.setProperty("healthcare.dataDir", dir.getPath());
+        system = new HealthCareSystem();
+        repository = AppointmentRepository.getInstance();
+        doctors = system.getAllDoctors();
+        patients = DatasetGenerator.patientCount(rows);
+    }
+
+    @Benchmark
+    public String[] login() {
+        int i = ThreadLocalRandom.current().nextInt(patients);
+        return FileHandler.authenticateUser(DatasetGenerator.patientEmail(i), "pass" + i, "patient");
+    }
+
+    @Benchmark
+    public boolean duplicateEmailCheck() {
+        int i = ThreadLocalRandom.current().nextInt(patients * 2);
+        return FileHandler.emailExists(DatasetGenerator.patientEmail(i), "patient");
+    }
+
+    @Benchmark
+    public boolean slotConflictCheck() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Doctor doctor = doctors.get(random.nextInt(doctors.size()));
+        String date = DatasetGenerator.FIRST_DAY.plusDays(random.nextInt(DatasetGenerator.DAYS)).toString();
+        String slot = DatasetGenerator.TIME_SLOTS[random.nextInt(DatasetGenerator.TIME_SLOTS.length)];
+        return repository.isSlotBooked(doctor.getId(), date, slot);
+    }
+
+    @Benchmark
+    public List<Appointment> doctorAppointments() {
+        Doctor doctor = doctors.get(ThreadLocalRandom.current().nextInt(doctors.size()));
+        return doctor.viewAppointments();
+    }
+
+    @Benchmark
+    public List<Doctor> searchDoctor() {
+        String specialization = DatasetGenerator.SPECIALIZATIONS[
+                ThreadLocalRandom.current().nextInt(DatasetGenerator.SPECIALIZATIONS.length)];
+        return system.searchDoctor(specialization);
+    }
+
+    @Benchmark
+    public Map<String, Integer> appointmentStats() {
+        return system.getAppointmentStats();
+    }
+
+    // Reads the fields an appointment list shows, the list alone is only a set of views
+    @Benchmark
+    public void loadAllAppointments(Blackhole blackhole) {
+        for (Appointment appointment : Appointment.loadAppointmentsFromFile()) {
+            blackhole.consume(appointment.getAppointmentId());
+            blackhole.consume(appointment.getDoctorId());
+            blackhole.consume(appointment.getDate());
+            blackhole.consume(appointment.getStatus());
+        }
+    }
+}
@@ -1,96 +1,188 @@
 package appointments;
 
-import java.io.*;
+import database.IdGenerator;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 
+// A booking that isn't saved yet holds its own values. Once saved it is a read-only view of
+// one row of the repository's AppointmentStore, read under the repository's read lock.
+// Saved appointments change only through AppointmentRepository.updateStatus, which keeps
+// the indexes, statistics and log in step.
 public class Appointment {
-    private String appointmentId;
-    private String patientId;
-    private String doctorId;
-    private String date;
-    private String timeSlot;
-    private String disease;
-    private String status;
+    private static final int ID = 0;
+    private static final int PATIENT = 1;
+    private static final int DOCTOR = 2;
+    private static final int DATE = 3;
+    private static final int SLOT = 4;
+    private static final int DISEASE = 5;
+    private static final int STATUS = 6;
+
+    // Ids are this prefix and a generated number
+    static final String ID_PREFIX = "APT";
+
+    // Marks a date that isn't a valid yyyy-MM-dd
+    static final int NO_DAY = Integer.MIN_VALUE;
+
+    private AppointmentStore store;
+    private int row;
+    private String[] fields;
 
     public Appointment(String patientId, String doctorId, String date,
                        String timeSlot, String disease, String status) {
-        this.appointmentId = "APT" + System.currentTimeMillis();
-        this.patientId = patientId;
-        this.doctorId = doctorId;
-        this.date = date;
-        this.timeSlot = timeSlot;
-        this.disease = disease;
-        this.status = status;
+        this.fields = new String[]{IdGenerator.nextId(ID_PREFIX), patientId, doctorId,
+                date, timeSlot, disease, status};
+    }
+
+    // View of a stored row
+    Appointment(AppointmentStore store, int row) {
+        this.store = store;
+        this.row = row;
     }
 
     // Getters and Setters
-    public String getAppointmentId() { return appointmentId; }
-    public void setAppointmentId(String appointmentId) { this.appointmentId = appointmentId; }
+    public String getAppointmentId() { return store != null ? read(ID) : fields[ID]; }
+    public void setAppointmentId(String appointmentId) { set(ID, appointmentId); }
+
+    public String getPatientId() { return store != null ? read(PATIENT) : fields[PATIENT]; }
+    public void setPatientId(String patientId) { set(PATIENT, patientId); }
+
+    public String getDoctorId() { return store != null ? read(DOCTOR) : fields[DOCTOR]; }
+    public void setDoctorId(String doctorId) { set(DOCTOR, doctorId); }
+
+    public String getDate() { return store != null ? read(DATE) : fields[DATE]; }
+    public void setDate(String date) { set(DATE, date); }
+
+    public String getTimeSlot() { return store != null ? read(SLOT) : fields[SLOT]; }
+    public void setTimeSlot(String timeSlot) { set(SLOT, timeSlot); }
 
-    public String getPatientId() { return patientId; }
-    public void setPatientId(String patientId) { this.patientId = patientId; }
+    public String getDisease() { return store != null ? read(DISEASE) : fields[DISEASE]; }
+    public void setDisease(String disease) { set(DISEASE, disease); }
 
-    public String getDoctorId() { return doctorId; }
-    public void setDoctorId(String doctorId) { this.doctorId = doctorId; }
+    public String getStatus() { return store != null ? read(STATUS) : fields[STATUS]; }
+    public void setStatus(String status) { set(STATUS, status); }
 
-    public String getDate() { return date; }
-    public void setDate(String date) { this.date = date; }
+    private void set(int field, String value) {
+        if (store != null) {
+            throw new IllegalStateException("Appointment " + getAppointmentId()
+                    + " is saved, change it through AppointmentRepository.updateStatus");
+        }
+        fields[field] = value;
+    }
 
-    public String getTimeSlot() { return timeSlot; }
-    public void setTimeSlot(String timeSlot) { this.timeSlot = timeSlot; }
+    private String read(int field) {
+        Lock readLock = store.getReadLock();
+        readLock.lock();
+        try {
+            switch (field) {
+                case ID: return store.getId(row);
+                case PATIENT: return store.getPatientId(row);
+                case DOCTOR: return store.getDoctorId(row);
+                case DATE: return store.getDate(row);
+                case SLOT: return store.getTimeSlot(row);
+                case DISEASE: return store.getDisease(row);
+                default: return store.getStatus(row);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Fields in appointments.txt order
+    public String[] toFields() {
+        if (store == null) {
+            return fields.clone();
+        }
+        Lock readLock = store.getReadLock();
+        readLock.lock();
+        try {
+            return store.toFields(row);
+        } finally {
+            readLock.unlock();
+        }
+    }
 
-    public String getDisease() { return disease; }
-    public void setDisease(String disease) { this.disease = disease; }
+    // Called by the repository once the booking has its row
+    void bind(AppointmentStore store, int row) {
+        this.store = store;
+        this.row = row;
+        this.fields = null;
+    }
 
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
+    int getRow() { return row; }
 
     // File handling methods
     public void saveToFile() {
-        try (FileWriter fw = new FileWriter("appointments.txt", true);
-             BufferedWriter bw = new BufferedWriter(fw);
-             PrintWriter out = new PrintWriter(bw)) {
-            out.println(appointmentId + "," + patientId + "," + doctorId + "," +
-                    date + "," + timeSlot + "," + disease + "," + status);
-        } catch (IOException e) {
-            System.out.println("Error saving appointment: " + e.getMessage());
-        }
+        AppointmentRepository.getInstance().save(this);
     }
 
+    // Served from the in-memory repository, the file is only read once at startup
     public static List<Appointment> loadAppointmentsFromFile() {
-        List<Appointment> appointments = new ArrayList<>();
-        File file = new File("appointments.txt");
+        return AppointmentRepository.getInstance().findAll();
+    }
 
-        if (!file.exists()) {
-            return appointments;
-        }
+    // Number of an "APT<number>" id, NO_NUMBER for ids in any other form
+    static final long NO_NUMBER = -1;
 
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] parts = line.split(",");
-                if (parts.length == 7) {
-                    Appointment app = new Appointment(parts[1], parts[2], parts[3],
-                            parts[4], parts[5], parts[6]);
-                    app.appointmentId = parts[0];
-                    appointments.add(app);
-                }
+    static long idNumber(String appointmentId) {
+        if (appointmentId == null || !appointmentId.startsWith(ID_PREFIX)) {
+            return NO_NUMBER;
+        }
+        String digits = appointmentId.substring(ID_PREFIX.length());
+        // Only forms that print back the same way, no sign or leading zeros
+        if (digits.isEmpty() || digits.length() > 19 || (digits.length() > 1 && digits.charAt(0) == '0')) {
+            return NO_NUMBER;
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            if (digits.charAt(i) < '0' || digits.charAt(i) > '9') {
+                return NO_NUMBER;
             }
-        } catch (FileNotFoundException e) {
-            System.out.println("Error loading appointments: " + e.getMessage());
         }
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return NO_NUMBER;
+        }
+    }
+
+    static int toEpochDay(String date) {
+        if (date == null) {
+            return NO_DAY;
+        }
+        try {
+            return (int) LocalDate.parse(date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return NO_DAY;
+        }
+    }
 
-        return appointments;
+    // Two views of the same row are the same appointment
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Appointment) || store == null) {
+            return false;
+        }
+        Appointment appointment = (Appointment) other;
+        return store == appointment.store && row == appointment.row;
+    }
+
+    @Override
+    public int hashCode() {
+        return store == null ? System.identityHashCode(this) : row;
     }
 
     @Override
     public String toString() {
-        return "Appointment ID: " + appointmentId +
-                "\nPatient ID: " + patientId +
-                "\nDoctor ID: " + doctorId +
-                "\nDate: " + date +
-                "\nTime Slot: " + timeSlot +
-                "\nDisease: " + disease +
-                "\nStatus: " + status + "\n";
+        return "Appointment ID: " + getAppointmentId() +
+                "\nPatient ID: " + getPatientId() +
+                "\nDoctor ID: " + getDoctorId() +
+                "\nDate: " + getDate() +
+                "\nTime Slot: " + getTimeSlot() +
+                "\nDisease: " + getDisease() +
+                "\nStatus: " + getStatus() + "\n";
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package appointments;
+
+import java.time.LocalDate;
+
+// Filter for AppointmentRepository.query. Unset fields match everything, e.g.
+// new AppointmentQuery().withStatus("Pending").between(from, to).forDoctor(doctorId)
+public class AppointmentQuery {
+    private String status;
+    private String doctorId;
+    private String patientId;
+    private int fromDay = Integer.MIN_VALUE;
+    private int toDay = Integer.MAX_VALUE;
+    private boolean hasDateRange;
+
+    public AppointmentQuery withStatus(String status) {
+        // Same labels as the status buckets, whatever case the caller used
+        AppointmentStatus known = status == null ? null : AppointmentStatus.fromLabel(status);
+        this.status = known != null ? known.getLabel() : status;
+        return this;
+    }
+
+    public AppointmentQuery forDoctor(String doctorId) {
+        this.doctorId = doctorId;
+        return this;
+    }
+
+    public AppointmentQuery forPatient(String patientId) {
+        this.patientId = patientId;
+        return this;
+    }
+
+    public AppointmentQuery onDate(LocalDate date) {
+        return between(date, date);
+    }
+
+    // Inclusive, either end may be null for an open range
+    public AppointmentQuery between(LocalDate from, LocalDate to) {
+        fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        toDay = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        hasDateRange = from != null || to != null;
+        return this;
+    }
+
+    String getStatus() { return status; }
+    String getDoctorId() { return doctorId; }
+    String getPatientId() { return patientId; }
+    int getFromDay() { return fromDay; }
+    int getToDay() { return toDay; }
+    boolean hasDateRange() { return hasDateRange; }
+
+    // Checked against the store columns so no Appointment is created per candidate
+    boolean matches(AppointmentStore store, int row) {
+        if (status != null && !status.equals(store.getStatus(row))) {
+            return false;
+        }
+        if (doctorId != null && !doctorId.equals(store.getDoctorId(row))) {
+            return false;
+        }
+        if (patientId != null && !patientId.equals(store.getPatientId(row))) {
+            return false;
+        }
+        if (hasDateRange) {
+            int day = store.getEpochDay(row);
+            return day != Appointment.NO_DAY && day >= fromDay && day <= toDay;
+        }
+        return true;
+    }
+}
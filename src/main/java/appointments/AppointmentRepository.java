@@ -0,0 +1,649 @@
+package appointments;
+
+import database.CsvCodec;
+import database.FileHandler;
+import database.RecordLog;
+import database.RowCursor;
+import database.SnapshotFile;
+import exceptions.AppointmentSaveException;
+import exceptions.InvalidStatusTransitionException;
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class AppointmentRepository {
+
+    // fsync after this many records, or once the oldest unsynced record is this old
+    private static final int LOG_SYNC_RECORDS = Integer.getInteger("appointments.log.syncRecords", 1);
+    private static final long LOG_SYNC_MILLIS = Long.getLong("appointments.log.syncMillis", 10);
+
+    // Record types in appointments.log
+    private static final byte BOOKED = 1;
+    private static final byte STATUS_CHANGED = 2;
+
+    private static AppointmentRepository instance;
+
+    private final String appointmentsFile = FileHandler.dataFile("appointments.txt");
+    private final String logFile = FileHandler.dataFile("appointments.log");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All appointments in file order as store rows, plus secondary indexes of row numbers
+    private final AppointmentStore store = new AppointmentStore(lock.readLock());
+    // Generated ids by their number, ids in any other form as written
+    private final Map<Long, Integer> byId = new HashMap<>();
+    private final Map<String, Integer> byOtherId = new HashMap<>();
+    // Indexed by the store's interned doctor / patient key
+    private final List<RowList> byDoctor = new ArrayList<>();
+    private final List<RowList> byPatient = new ArrayList<>();
+    // Keyed by epoch day, sorted so a date range is a sub map
+    private final NavigableMap<Integer, RowList> byDay = new TreeMap<>();
+    // Dates that aren't yyyy-MM-dd, as written
+    private final Map<String, RowList> byOtherDate = new HashMap<>();
+    // Doctor / patient key pairs seen so far, and per key how many distinct partners,
+    // so the distinct counts are read in O(1) and only move on a pair's first booking
+    private final PairSet pairs = new PairSet();
+    private int[] patientsPerDoctor = new int[16];
+    private int[] doctorsPerPatient = new int[16];
+    // Bit sets so a status change can move a row between buckets in O(1)
+    private final Map<String, BitSet> byStatus = new HashMap<>();
+    // Serializes status changes per row without a lock object per appointment
+    private final Object[] rowLocks = new Object[64];
+    private final SlotOccupancy slots = new SlotOccupancy();
+    private final AppointmentStatistics statistics = new AppointmentStatistics();
+    private final AvailabilityEngine availability = new AvailabilityEngine(slots);
+
+    // Saves share the read side, a checkpoint takes the write side to see no half-done save
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private RecordLog log;
+
+    private AppointmentRepository() {
+        for (int i = 0; i < rowLocks.length; i++) {
+            rowLocks[i] = new Object();
+        }
+
+        long textOffset = 0;
+        long logOffset = 0;
+
+        // Start from the snapshot and replay only what was written after it
+        SnapshotFile snapshot = SnapshotFile.current();
+        if (snapshot != null
+                && snapshot.coversFile(SnapshotFile.APPOINTMENTS, appointmentsFile)
+                && snapshot.coversFile(SnapshotFile.APPOINTMENT_LOG, logFile)) {
+            loadFromSnapshot(snapshot.getTable(SnapshotFile.APPOINTMENTS));
+            textOffset = snapshot.getMark(SnapshotFile.APPOINTMENTS);
+            logOffset = snapshot.getMark(SnapshotFile.APPOINTMENT_LOG);
+        }
+
+        // appointments.txt holds bookings made before the log existed
+        loadFromFile(textOffset);
+        openLog(logOffset);
+    }
+
+    public static synchronized AppointmentRepository getInstance() {
+        if (instance == null) {
+            instance = new AppointmentRepository();
+        }
+        return instance;
+    }
+
+    // Append to the log and index in memory. Waits for the group commit,
+    // but not under the lock, so concurrent bookings share one fsync.
+    // Throws AppointmentSaveException when the appointment couldn't be written.
+    public void save(Appointment appointment) {
+        checkpointLock.readLock().lock();
+        try {
+            if (log != null) {
+                try {
+                    log.append(BOOKED, appointment.toFields()).join();
+                } catch (CompletionException e) {
+                    throw new AppointmentSaveException("Error saving appointment: "
+                            + e.getCause().getMessage(), e.getCause());
+                }
+            } else {
+                appendToFile(appointment);
+            }
+
+            lock.writeLock().lock();
+            try {
+                String[] fields = appointment.toFields();
+                int row = store.add(fields[0], fields[1], fields[2], fields[3],
+                        fields[4], fields[5], fields[6]);
+                appointment.bind(store, row);
+                index(row);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    // Logs a small status record and moves the appointment to its new status bucket
+    public void updateStatus(String appointmentId, AppointmentStatus newStatus)
+            throws InvalidStatusTransitionException {
+        Appointment appointment = findById(appointmentId);
+        if (appointment == null) {
+            throw new InvalidStatusTransitionException("Appointment not found: " + appointmentId);
+        }
+        int row = appointment.getRow();
+
+        checkpointLock.readLock().lock();
+        try {
+            synchronized (rowLocks[row % rowLocks.length]) {
+                String status = appointment.getStatus();
+                AppointmentStatus current = AppointmentStatus.fromLabel(status);
+                if (current == null || !current.canChangeTo(newStatus)) {
+                    throw new InvalidStatusTransitionException("Cannot change appointment from " +
+                            status + " to " + newStatus.getLabel());
+                }
+
+                if (log != null) {
+                    try {
+                        log.append(STATUS_CHANGED, appointmentId, newStatus.getLabel()).join();
+                    } catch (CompletionException e) {
+                        throw new InvalidStatusTransitionException(
+                                "Error saving status: " + e.getCause().getMessage());
+                    }
+                }
+
+                lock.writeLock().lock();
+                try {
+                    applyStatus(row, newStatus.getLabel());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                if (log == null) {
+                    appendToFile(appointment);
+                }
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    // Write patients, doctors and appointments to the snapshot file
+    public void checkpoint() {
+        checkpointLock.writeLock().lock();
+        try {
+            List<String[]> patients = new ArrayList<>();
+            List<String[]> doctors = new ArrayList<>();
+            List<String[]> rows = new ArrayList<>();
+            long[] marks = new long[4];
+
+            marks[SnapshotFile.PATIENTS] = FileHandler.snapshotUsers("patient", patients);
+            marks[SnapshotFile.DOCTORS] = FileHandler.snapshotUsers("doctor", doctors);
+            marks[SnapshotFile.APPOINTMENTS] = new File(appointmentsFile).length();
+            marks[SnapshotFile.APPOINTMENT_LOG] = new File(logFile).length();
+
+            lock.readLock().lock();
+            try {
+                for (int row = 0; row < store.size(); row++) {
+                    rows.add(store.toFields(row));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            String[] sources = {FileHandler.dataFile("patients.txt"), FileHandler.dataFile("doctors.txt"),
+                    appointmentsFile, logFile};
+            SnapshotFile.write(FileHandler.dataFile(SnapshotFile.FILE_NAME), marks, sources,
+                    Arrays.asList(patients, doctors, rows), new int[]{5, 5, 7});
+        } catch (IOException e) {
+            System.out.println("Error writing snapshot: " + e.getMessage());
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    // Fields of every row in file order, read in chunks under the read lock
+    public RowCursor cursor() {
+        lock.readLock().lock();
+        try {
+            return new RowCursor(store.size()) {
+                @Override
+                protected void read(int from, int to, List<String[]> into) {
+                    lock.readLock().lock();
+                    try {
+                        for (int row = from; row < to; row++) {
+                            into.add(store.toFields(row));
+                        }
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Views over the rows, an Appointment object is only created when an item is read
+    public List<Appointment> findAll() {
+        lock.readLock().lock();
+        try {
+            return new Views(store, null, store.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Appointment findById(String appointmentId) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowOf(appointmentId);
+            return row == null ? null : new Appointment(store, row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Appointment> findByDoctor(String doctorId) {
+        lock.readLock().lock();
+        try {
+            return views(bucket(byDoctor, store.findDoctorKey(doctorId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Appointment> findByPatient(String patientId) {
+        lock.readLock().lock();
+        try {
+            return views(bucket(byPatient, store.findPatientKey(patientId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Per-person figures for the dashboards. Distinct doctor / patient counts are read from
+    // the counters kept per key in index(). Status and upcoming counts walk only that
+    // person's rows through the patient index, a handful per patient, so no status
+    // counters are kept per patient.
+
+    // Status -> count for the patient's appointments, statuses spelled canonically
+    public Map<String, Long> countPatientStatuses(String patientId) {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            RowList rows = bucket(byPatient, store.findPatientKey(patientId));
+            for (int i = 0; rows != null && i < rows.size(); i++) {
+                String status = store.getStatus(rows.get(i));
+                AppointmentStatus known = AppointmentStatus.fromLabel(status);
+                counts.merge(known == null ? status : known.getLabel(), 1L, Long::sum);
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Pending or confirmed appointments of the patient on or after the date
+    public int countUpcoming(String patientId, LocalDate from) {
+        lock.readLock().lock();
+        try {
+            int fromDay = (int) from.toEpochDay();
+            int count = 0;
+            RowList rows = bucket(byPatient, store.findPatientKey(patientId));
+            for (int i = 0; rows != null && i < rows.size(); i++) {
+                int row = rows.get(i);
+                AppointmentStatus status = AppointmentStatus.fromLabel(store.getStatus(row));
+                int day = store.getEpochDay(row);
+                if (day != Appointment.NO_DAY && day >= fromDay
+                        && (status == AppointmentStatus.PENDING || status == AppointmentStatus.CONFIRMED)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countDistinctDoctors(String patientId) {
+        lock.readLock().lock();
+        try {
+            return countFor(doctorsPerPatient, store.findPatientKey(patientId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countDistinctPatients(String doctorId) {
+        lock.readLock().lock();
+        try {
+            return countFor(patientsPerDoctor, store.findDoctorKey(doctorId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int countFor(int[] counts, int key) {
+        return key < 0 || key >= counts.length ? 0 : counts[key];
+    }
+
+    private static int[] increment(int[] counts, int key) {
+        if (key >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(key + 1, counts.length * 2));
+        }
+        counts[key]++;
+        return counts;
+    }
+
+    public List<Appointment> findByDate(String date) {
+        lock.readLock().lock();
+        try {
+            int day = Appointment.toEpochDay(date);
+            return views(day == Appointment.NO_DAY ? byOtherDate.get(date) : byDay.get(day));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Appointment> findByStatus(String status) {
+        lock.readLock().lock();
+        try {
+            BitSet rows = byStatus.get(status);
+            return rows == null ? new ArrayList<>() : new Views(store, rows.stream().toArray(), rows.cardinality());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Walks the smallest index bucket the query allows and checks the rest per row,
+    // so the cost follows the matches rather than the whole store
+    public List<Appointment> query(AppointmentQuery query) {
+        lock.readLock().lock();
+        try {
+            RowList doctorRows = query.getDoctorId() == null ? null
+                    : bucket(byDoctor, store.findDoctorKey(query.getDoctorId()));
+            RowList patientRows = query.getPatientId() == null ? null
+                    : bucket(byPatient, store.findPatientKey(query.getPatientId()));
+            BitSet statusRows = query.getStatus() == null ? null : byStatus.get(query.getStatus());
+            if ((query.getDoctorId() != null && doctorRows == null)
+                    || (query.getPatientId() != null && patientRows == null)
+                    || (query.getStatus() != null && statusRows == null)) {
+                return new ArrayList<>();
+            }
+
+            int smallest = store.size();
+            RowList rows = null;
+            if (doctorRows != null && doctorRows.size() < smallest) {
+                rows = doctorRows;
+                smallest = rows.size();
+            }
+            if (patientRows != null && patientRows.size() < smallest) {
+                rows = patientRows;
+                smallest = rows.size();
+            }
+
+            RowList matches = new RowList();
+            if (query.hasDateRange() && rangeIsSmaller(query, smallest)) {
+                for (RowList bucket : byDay.subMap(
+                        query.getFromDay(), true, query.getToDay(), true).values()) {
+                    collect(query, bucket, matches);
+                }
+            } else if (statusRows != null && statusRows.cardinality() < smallest) {
+                for (int row = statusRows.nextSetBit(0); row >= 0; row = statusRows.nextSetBit(row + 1)) {
+                    if (query.matches(store, row)) {
+                        matches.add(row);
+                    }
+                }
+            } else if (rows != null) {
+                collect(query, rows, matches);
+            } else {
+                for (int row = 0; row < store.size(); row++) {
+                    if (query.matches(store, row)) {
+                        matches.add(row);
+                    }
+                }
+            }
+            return views(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isSlotBooked(String doctorId, String date, String timeSlot) {
+        return slots.isBooked(doctorId, date, timeSlot);
+    }
+
+    public SlotOccupancy getSlotOccupancy() {
+        return slots;
+    }
+
+    public AppointmentStatistics getStatistics() {
+        return statistics;
+    }
+
+    public AvailabilityEngine getAvailability() {
+        return availability;
+    }
+
+    public Map<String, Integer> countByStatus() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> counts = new HashMap<>();
+            for (Map.Entry<String, BitSet> entry : byStatus.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().cardinality());
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return store.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Read-only list of appointment views over a set of rows, rows == null means all rows
+    private static class Views extends AbstractList<Appointment> implements RandomAccess {
+        private final AppointmentStore store;
+        private final int[] rows;
+        private final int size;
+
+        Views(AppointmentStore store, int[] rows, int size) {
+            this.store = store;
+            this.rows = rows;
+            this.size = size;
+        }
+
+        @Override
+        public Appointment get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+            }
+            return new Appointment(store, rows == null ? index : rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private List<Appointment> views(RowList rows) {
+        return rows == null ? new ArrayList<>() : new Views(store, rows.toArray(), rows.size());
+    }
+
+    private static RowList bucket(List<RowList> index, int key) {
+        return key < 0 || key >= index.size() ? null : index.get(key);
+    }
+
+    private static RowList bucketFor(List<RowList> index, int key) {
+        while (index.size() <= key) {
+            index.add(new RowList());
+        }
+        return index.get(key);
+    }
+
+    private void collect(AppointmentQuery query, RowList rows, RowList matches) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (query.matches(store, rows.get(i))) {
+                matches.add(rows.get(i));
+            }
+        }
+    }
+
+    // Counts the date range only until it is known to be larger than the other candidates
+    private boolean rangeIsSmaller(AppointmentQuery query, int limit) {
+        int count = 0;
+        for (RowList bucket : byDay.subMap(
+                query.getFromDay(), true, query.getToDay(), true).values()) {
+            count += bucket.size();
+            if (count >= limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void index(int row) {
+        long number = store.getIdNumber(row);
+        if (number != Appointment.NO_NUMBER) {
+            byId.put(number, row);
+        } else {
+            byOtherId.put(store.getId(row), row);
+        }
+        int doctorKey = store.getDoctorKey(row);
+        int patientKey = store.getPatientKey(row);
+        bucketFor(byDoctor, doctorKey).add(row);
+        bucketFor(byPatient, patientKey).add(row);
+        if (pairs.add(doctorKey, patientKey)) {
+            patientsPerDoctor = increment(patientsPerDoctor, doctorKey);
+            doctorsPerPatient = increment(doctorsPerPatient, patientKey);
+        }
+        int day = store.getEpochDay(row);
+        if (day != Appointment.NO_DAY) {
+            byDay.computeIfAbsent(day, k -> new RowList()).add(row);
+        } else {
+            byOtherDate.computeIfAbsent(store.getDate(row), k -> new RowList()).add(row);
+        }
+        byStatus.computeIfAbsent(store.getStatus(row), k -> new BitSet()).set(row);
+        if (!"Cancelled".equalsIgnoreCase(store.getStatus(row))) {
+            slots.markBooked(store.getDoctorId(row), store.getDate(row), store.getTimeSlot(row));
+        }
+        statistics.onBooked(new Appointment(store, row));
+    }
+
+    private void applyStatus(int row, String newStatus) {
+        String oldStatus = store.getStatus(row);
+        BitSet bucket = byStatus.get(oldStatus);
+        if (bucket != null) {
+            bucket.clear(row);
+        }
+        boolean wasCancelled = "Cancelled".equalsIgnoreCase(oldStatus);
+        store.setStatus(row, newStatus);
+        statistics.onStatusChanged(new Appointment(store, row), oldStatus, newStatus);
+        byStatus.computeIfAbsent(newStatus, k -> new BitSet()).set(row);
+
+        boolean isCancelled = "Cancelled".equalsIgnoreCase(newStatus);
+        if (isCancelled && !wasCancelled) {
+            slots.release(store.getDoctorId(row), store.getDate(row), store.getTimeSlot(row));
+        } else if (wasCancelled && !isCancelled) {
+            slots.markBooked(store.getDoctorId(row), store.getDate(row), store.getTimeSlot(row));
+        }
+    }
+
+    private Integer rowOf(String appointmentId) {
+        long number = Appointment.idNumber(appointmentId);
+        return number != Appointment.NO_NUMBER ? byId.get(number) : byOtherId.get(appointmentId);
+    }
+
+    private void add(String[] fields) {
+        index(store.add(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6]));
+    }
+
+    // Rows read at startup: a repeat of a known booking is a status update, anything else a new booking
+    private void addOrUpdate(CsvCodec.Record record) {
+        String id = record.get(0);
+        String patientId = record.get(1);
+        String doctorId = record.get(2);
+        String date = record.get(3);
+        String timeSlot = record.get(4);
+        Integer row = rowOf(id);
+        if (row != null
+                && store.getPatientId(row).equals(patientId)
+                && store.getDoctorId(row).equals(doctorId)
+                && store.getDate(row).equals(date)
+                && store.getTimeSlot(row).equals(timeSlot)) {
+            applyStatus(row, record.get(6));
+        } else {
+            index(store.add(id, patientId, doctorId, date, timeSlot, record.get(5), record.get(6)));
+        }
+    }
+
+    private void openLog(long offset) {
+        try {
+            log = new RecordLog(logFile, LOG_SYNC_RECORDS, LOG_SYNC_MILLIS);
+            log.replay(offset, (type, fields) -> {
+                if (type == BOOKED && fields.length == 7) {
+                    add(fields);
+                } else if (type == STATUS_CHANGED && fields.length == 2) {
+                    Integer row = rowOf(fields[0]);
+                    if (row != null) {
+                        applyStatus(row, fields[1]);
+                    }
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                checkpoint();
+                closeLog();
+            }));
+        } catch (IOException e) {
+            // Fall back to the text file rather than refusing to book
+            System.out.println("Error opening appointment log: " + e.getMessage());
+            log = null;
+        }
+    }
+
+    private void closeLog() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.out.println("Error closing appointment log: " + e.getMessage());
+        }
+    }
+
+    // Only used when the log could not be opened. A status change appends the row
+    // again, loadFromFile treats a repeated id as an update.
+    private void appendToFile(Appointment appointment) {
+        try (FileWriter fw = new FileWriter(appointmentsFile, true);
+             BufferedWriter bw = new BufferedWriter(fw);
+             PrintWriter out = new PrintWriter(bw)) {
+            out.println(CsvCodec.encode(appointment.toFields()));
+            // PrintWriter keeps write errors to itself
+            if (out.checkError()) {
+                throw new IOException("could not write " + appointmentsFile);
+            }
+        } catch (IOException e) {
+            throw new AppointmentSaveException("Error saving appointment: " + e.getMessage(), e);
+        }
+    }
+
+    private void loadFromSnapshot(SnapshotFile.Table rows) {
+        for (int row = 0; row < rows.getRows(); row++) {
+            index(store.add(rows.get(row, 0), rows.get(row, 1), rows.get(row, 2), rows.get(row, 3),
+                    rows.get(row, 4), rows.get(row, 5), rows.get(row, 6)));
+        }
+    }
+
+    // Read the file once at startup
+    private void loadFromFile(long offset) {
+        FileHandler.readRecordsFrom(appointmentsFile, offset, record -> {
+            if (record.size() == 7) {
+                addOrUpdate(record);
+            }
+        });
+    }
+}
@@ -0,0 +1,146 @@
+package appointments;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters kept current by the repository on every booking and status change,
+// so dashboards and reports never have to walk the appointments
+public class AppointmentStatistics {
+    private final LongAdder total = new LongAdder();
+    // Keyed by canonical status label, like byDoctorStatus
+    private final Map<String, LongAdder> byStatus = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byDoctor = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byDay = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byDoctorDay = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> bySpecialization = new ConcurrentHashMap<>();
+    private final Map<String, String> doctorSpecializations = new ConcurrentHashMap<>();
+
+    // "doctorId|status" counts. Per-patient figures come from the repository's patient
+    // index instead, a counter per patient would cost more memory than the rows.
+    private final Map<String, LongAdder> byDoctorStatus = new ConcurrentHashMap<>();
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    void onBooked(Appointment appointment) {
+        String doctorId = appointment.getDoctorId();
+
+        total.increment();
+        counter(byStatus, statusKey(appointment.getStatus())).increment();
+        counter(byDoctor, doctorId).increment();
+        counter(byDay, appointment.getDate()).increment();
+        counter(byDoctorDay, doctorId + "|" + appointment.getDate()).increment();
+
+        String specialization = doctorSpecializations.get(doctorId);
+        if (specialization != null) {
+            counter(bySpecialization, specialization).increment();
+        }
+
+        counter(byDoctorStatus, doctorId + "|" + statusKey(appointment.getStatus())).increment();
+        fireChanged();
+    }
+
+    void onStatusChanged(Appointment appointment, String oldStatus, String newStatus) {
+        counter(byStatus, statusKey(oldStatus)).decrement();
+        counter(byStatus, statusKey(newStatus)).increment();
+
+        String doctorId = appointment.getDoctorId();
+        counter(byDoctorStatus, doctorId + "|" + statusKey(oldStatus)).decrement();
+        counter(byDoctorStatus, doctorId + "|" + statusKey(newStatus)).increment();
+        fireChanged();
+    }
+
+    // Called after every booking or status change, on the thread that made it
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // Doctors can be registered after their appointments were loaded,
+    // their existing bookings are added to the specialization then
+    public void registerDoctor(String doctorId, String specialization) {
+        if (specialization == null) {
+            return;
+        }
+        String key = specialization.toLowerCase();
+        if (doctorSpecializations.putIfAbsent(doctorId, key) == null) {
+            counter(bySpecialization, key).add(getDoctorCount(doctorId));
+        }
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getStatusCount(String status) {
+        return sum(byStatus, statusKey(status));
+    }
+
+    public long getDoctorCount(String doctorId) {
+        return sum(byDoctor, doctorId);
+    }
+
+    public long getDayCount(String date) {
+        return sum(byDay, date);
+    }
+
+    public long getDoctorDayCount(String doctorId, String date) {
+        return sum(byDoctorDay, doctorId + "|" + date);
+    }
+
+    public long getSpecializationCount(String specialization) {
+        return specialization == null ? 0 : sum(bySpecialization, specialization.toLowerCase());
+    }
+
+    public Map<String, Long> getStatusCounts() {
+        return snapshot(byStatus);
+    }
+
+    public Map<String, Long> getDoctorCounts() {
+        return snapshot(byDoctor);
+    }
+
+    public Map<String, Long> getSpecializationCounts() {
+        return snapshot(bySpecialization);
+    }
+
+    public long getDoctorStatusCount(String doctorId, String status) {
+        return sum(byDoctorStatus, doctorId + "|" + statusKey(status));
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    // Status spelled as its canonical label, so "pending" and "Pending" count together
+    private static String statusKey(String status) {
+        AppointmentStatus known = AppointmentStatus.fromLabel(status);
+        return known == null ? String.valueOf(status) : known.getLabel();
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String key) {
+        return counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private static long sum(Map<String, LongAdder> counters, String key) {
+        LongAdder adder = counters.get(key);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> copy = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            long value = entry.getValue().sum();
+            if (value != 0) {
+                copy.put(entry.getKey(), value);
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,42 @@
+package appointments;
+
+public enum AppointmentStatus {
+    PENDING("Pending"),
+    CONFIRMED("Confirmed"),
+    COMPLETED("Completed"),
+    CANCELLED("Cancelled");
+
+    private final String label;
+
+    AppointmentStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+
+    // Pending -> Confirmed -> Completed, and anything not finished can be cancelled
+    public boolean canChangeTo(AppointmentStatus next) {
+        switch (this) {
+            case PENDING:
+                return next == CONFIRMED || next == CANCELLED;
+            case CONFIRMED:
+                return next == COMPLETED || next == CANCELLED;
+            default:
+                return false;
+        }
+    }
+
+    public static AppointmentStatus fromLabel(String label) {
+        for (AppointmentStatus status : values()) {
+            if (status.label.equalsIgnoreCase(label)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,185 @@
+package appointments;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+
+// Column storage for appointments, one array per field instead of an object with seven
+// Strings per booking. Dates are epoch days, time slot and status are small codes, patient,
+// doctor and disease values are interned to int keys, "APT<number>" ids are stored as the
+// number. Values outside the known formats (an id of another form, a free-form date, an
+// unknown slot or status) are kept as-is in side maps by row.
+// Nothing here is thread-safe on its own: writes happen under the repository's write lock
+// and every read under its read lock, Appointment views included (getReadLock), so the
+// arrays swapped by grow() and the dictionaries are always seen whole.
+class AppointmentStore {
+    private static final byte OTHER = -1;
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+
+    // Each distinct string stored once, rows hold its key
+    static class Dictionary {
+        private final Map<String, Integer> keys = new HashMap<>();
+        private String[] values = new String[16];
+        private int size;
+
+        int intern(String value) {
+            Integer key = keys.get(value);
+            if (key == null) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                key = size;
+                values[size++] = value;
+                keys.put(value, key);
+            }
+            return key;
+        }
+
+        int find(String value) {
+            Integer key = keys.get(value);
+            return key == null ? -1 : key;
+        }
+
+        String get(int key) {
+            return values[key];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    private final Lock readLock;
+
+    private final Dictionary patients = new Dictionary();
+    private final Dictionary doctors = new Dictionary();
+    private final Dictionary diseases = new Dictionary();
+
+    private int size;
+    private long[] ids = new long[16];
+    private int[] patientKeys = new int[16];
+    private int[] doctorKeys = new int[16];
+    private int[] days = new int[16];
+    private byte[] slots = new byte[16];
+    private int[] diseaseKeys = new int[16];
+    private byte[] statuses = new byte[16];
+
+    // A missing entry reads as null
+    private final Map<Integer, String> otherIds = new HashMap<>();
+    private final Map<Integer, String> otherDates = new HashMap<>();
+    private final Map<Integer, String> otherSlots = new HashMap<>();
+    private final Map<Integer, String> otherStatuses = new HashMap<>();
+
+    AppointmentStore(Lock readLock) {
+        this.readLock = readLock;
+    }
+
+    Lock getReadLock() {
+        return readLock;
+    }
+
+    int add(String id, String patientId, String doctorId, String date,
+            String timeSlot, String disease, String status) {
+        if (size == ids.length) {
+            grow();
+        }
+        int row = size;
+        setId(row, id);
+        patientKeys[row] = patients.intern(patientId);
+        doctorKeys[row] = doctors.intern(doctorId);
+        diseaseKeys[row] = diseases.intern(disease);
+        setDate(row, date);
+        setTimeSlot(row, timeSlot);
+        setStatus(row, status);
+        size++;
+        return row;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String getId(int row) {
+        long number = ids[row];
+        return number == Appointment.NO_NUMBER ? otherIds.get(row) : Appointment.ID_PREFIX + number;
+    }
+
+    long getIdNumber(int row) { return ids[row]; }
+    String getPatientId(int row) { return patients.get(patientKeys[row]); }
+    String getDoctorId(int row) { return doctors.get(doctorKeys[row]); }
+    String getDisease(int row) { return diseases.get(diseaseKeys[row]); }
+    int getPatientKey(int row) { return patientKeys[row]; }
+    int getDoctorKey(int row) { return doctorKeys[row]; }
+    int getEpochDay(int row) { return days[row]; }
+
+    String getDate(int row) {
+        int day = days[row];
+        return day == Appointment.NO_DAY ? otherDates.get(row) : LocalDate.ofEpochDay(day).toString();
+    }
+
+    String getTimeSlot(int row) {
+        byte slot = slots[row];
+        return slot == OTHER ? otherSlots.get(row) : SlotOccupancy.TIME_SLOTS[slot];
+    }
+
+    String getStatus(int row) {
+        byte status = statuses[row];
+        return status == OTHER ? otherStatuses.get(row) : STATUSES[status].getLabel();
+    }
+
+    // Keys for the index lookups, -1 when the id was never stored
+    int findPatientKey(String patientId) { return patients.find(patientId); }
+    int findDoctorKey(String doctorId) { return doctors.find(doctorId); }
+
+    void setId(int row, String id) {
+        long number = Appointment.idNumber(id);
+        ids[row] = number;
+        putOther(otherIds, row, number == Appointment.NO_NUMBER ? id : null);
+    }
+
+    void setDate(int row, String date) {
+        int day = Appointment.toEpochDay(date);
+        days[row] = day;
+        putOther(otherDates, row, day == Appointment.NO_DAY ? date : null);
+    }
+
+    void setTimeSlot(int row, String timeSlot) {
+        // Exact spelling only, "9am" is kept as written
+        int slot = SlotOccupancy.slotIndex(timeSlot);
+        boolean encoded = slot >= 0 && SlotOccupancy.TIME_SLOTS[slot].equals(timeSlot);
+        slots[row] = encoded ? (byte) slot : OTHER;
+        putOther(otherSlots, row, encoded ? null : timeSlot);
+    }
+
+    void setStatus(int row, String status) {
+        // Only the exact label is encoded, anything else is kept as written
+        AppointmentStatus known = status == null ? null : AppointmentStatus.fromLabel(status);
+        boolean encoded = known != null && known.getLabel().equals(status);
+        statuses[row] = encoded ? (byte) known.ordinal() : OTHER;
+        putOther(otherStatuses, row, encoded ? null : status);
+    }
+
+    private static void putOther(Map<Integer, String> others, int row, String value) {
+        if (value == null) {
+            others.remove(row);
+        } else {
+            others.put(row, value);
+        }
+    }
+
+    String[] toFields(int row) {
+        return new String[]{getId(row), getPatientId(row), getDoctorId(row), getDate(row),
+                getTimeSlot(row), getDisease(row), getStatus(row)};
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        patientKeys = Arrays.copyOf(patientKeys, capacity);
+        doctorKeys = Arrays.copyOf(doctorKeys, capacity);
+        days = Arrays.copyOf(days, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+        diseaseKeys = Arrays.copyOf(diseaseKeys, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+    }
+}
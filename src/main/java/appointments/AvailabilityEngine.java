@@ -0,0 +1,111 @@
+package appointments;
+
+import database.CsvCodec;
+import database.FileHandler;
+import java.io.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Free slots per doctor and date: the doctor's weekly template with the slots
+// booked on that date masked out. Templates are one long per doctor, bit
+// day * 5 + slot set when the doctor is off (day 0 = Monday, slots as
+// SlotOccupancy.TIME_SLOTS), and are appended to schedules.txt on every change.
+public class AvailabilityEngine {
+    private static final int SLOTS = SlotOccupancy.TIME_SLOTS.length;
+    private static final int ALL_SLOTS = (1 << SLOTS) - 1;
+
+    private final String schedulesFile = FileHandler.dataFile("schedules.txt");
+    private final SlotOccupancy occupancy;
+    private final Map<String, Long> blocked = new ConcurrentHashMap<>();
+
+    AvailabilityEngine(SlotOccupancy occupancy) {
+        this.occupancy = occupancy;
+        loadFromFile();
+    }
+
+    // Bit i set when TIME_SLOTS[i] is free for the doctor on that date
+    public int freeSlots(String doctorId, LocalDate date) {
+        int day = date.getDayOfWeek().getValue() - 1;
+        int off = (int) (blocked.getOrDefault(doctorId, 0L) >>> (day * SLOTS)) & ALL_SLOTS;
+        return ALL_SLOTS & ~off & ~occupancy.bookedSlots(doctorId, date.toString());
+    }
+
+    public boolean hasFreeSlot(String doctorId, LocalDate date) {
+        return freeSlots(doctorId, date) != 0;
+    }
+
+    public List<String> freeSlotNames(String doctorId, LocalDate date) {
+        List<String> names = new ArrayList<>();
+        int free = freeSlots(doctorId, date);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if ((free & (1 << slot)) != 0) {
+                names.add(SlotOccupancy.TIME_SLOTS[slot]);
+            }
+        }
+        return names;
+    }
+
+    // Whether the weekly template has the doctor working at this slot,
+    // slots outside the standard five and unparseable dates are not restricted
+    public boolean isWorking(String doctorId, String date, String timeSlot) {
+        int slot = SlotOccupancy.slotIndex(timeSlot);
+        if (slot < 0) {
+            return true;
+        }
+        try {
+            return isWorking(doctorId, LocalDate.parse(date).getDayOfWeek().getValue() - 1, slot);
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+
+    public boolean isWorking(String doctorId, int day, int slot) {
+        return (blocked.getOrDefault(doctorId, 0L) & (1L << (day * SLOTS + slot))) == 0;
+    }
+
+    // Synchronized so the file gets the changes in the order they were made
+    public synchronized void setWorking(String doctorId, int day, int slot, boolean working) {
+        long bit = 1L << (day * SLOTS + slot);
+        long mask = blocked.getOrDefault(doctorId, 0L);
+        long week = working ? mask & ~bit : mask | bit;
+        blocked.put(doctorId, week);
+        appendToFile(doctorId, week);
+    }
+
+    // Template as the [day][slot] grid Doctor exposes, true = not available
+    public boolean[][] getWeek(String doctorId) {
+        long mask = blocked.getOrDefault(doctorId, 0L);
+        boolean[][] week = new boolean[7][SLOTS];
+        for (int day = 0; day < 7; day++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                week[day][slot] = (mask & (1L << (day * SLOTS + slot))) != 0;
+            }
+        }
+        return week;
+    }
+
+    private void appendToFile(String doctorId, long week) {
+        try (FileWriter fw = new FileWriter(schedulesFile, true);
+             BufferedWriter bw = new BufferedWriter(fw);
+             PrintWriter out = new PrintWriter(bw)) {
+            out.println(CsvCodec.encode(doctorId, Long.toString(week)));
+        } catch (IOException e) {
+            System.out.println("Error saving schedule: " + e.getMessage());
+        }
+    }
+
+    // Later lines for a doctor replace earlier ones
+    private void loadFromFile() {
+        FileHandler.readRecordsFrom(schedulesFile, 0, record -> {
+            if (record.size() == 2) {
+                try {
+                    blocked.put(record.get(0), Long.parseLong(record.get(1).trim()));
+                } catch (NumberFormatException e) {
+                    System.out.println("Skipping bad schedule for " + record.get(0));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package appointments;
+
+import java.util.Arrays;
+
+// Set of (int, int) pairs packed into longs, open addressing with linear probing.
+// A HashSet<Long> would cost a boxed Long and an entry object per pair.
+class PairSet {
+    private static final long EMPTY = -1;
+
+    private long[] table = newTable(16);
+    private int size;
+
+    // False when the pair is already in the set. Both values must be non-negative.
+    boolean add(int first, int second) {
+        if (size * 2 >= table.length) {
+            long[] old = table;
+            table = newTable(old.length * 2);
+            for (long pair : old) {
+                if (pair != EMPTY) {
+                    insert(table, pair);
+                }
+            }
+        }
+        if (!insert(table, ((long) first << 32) | second)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static boolean insert(long[] table, long pair) {
+        int mask = table.length - 1;
+        int i = (int) ((pair * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == pair) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = pair;
+        return true;
+    }
+
+    private static long[] newTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+}
@@ -0,0 +1,28 @@
+package appointments;
+
+import java.util.Arrays;
+
+// Growable list of store rows, used for the index buckets instead of lists of objects
+class RowList {
+    private int[] rows = new int[4];
+    private int size;
+
+    void add(int row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        rows[size++] = row;
+    }
+
+    int get(int index) {
+        return rows[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(rows, size);
+    }
+}
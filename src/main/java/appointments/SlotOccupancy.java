@@ -0,0 +1,85 @@
+package appointments;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SlotOccupancy {
+    // Same order as Doctor.schedule columns
+    public static final String[] TIME_SLOTS = {"9AM", "11AM", "2PM", "4PM", "6PM"};
+
+    // One bitset per doctor-day, bit i set when TIME_SLOTS[i] is taken
+    private final Map<String, AtomicInteger> occupied = new ConcurrentHashMap<>();
+    // Slots outside the standard five (free text from older files)
+    private final Set<String> otherSlots = ConcurrentHashMap.newKeySet();
+
+    public static int slotIndex(String timeSlot) {
+        for (int i = 0; i < TIME_SLOTS.length; i++) {
+            if (TIME_SLOTS[i].equalsIgnoreCase(timeSlot)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isBooked(String doctorId, String date, String timeSlot) {
+        int slot = slotIndex(timeSlot);
+        if (slot < 0) {
+            return otherSlots.contains(key(doctorId, date) + "|" + timeSlot);
+        }
+        AtomicInteger bits = occupied.get(key(doctorId, date));
+        return bits != null && (bits.get() & (1 << slot)) != 0;
+    }
+
+    // Atomic check-and-reserve, false if the slot was already taken.
+    // Only the doctor-day bitset is contended, so different doctors never block each other.
+    public boolean tryReserve(String doctorId, String date, String timeSlot) {
+        int slot = slotIndex(timeSlot);
+        if (slot < 0) {
+            return otherSlots.add(key(doctorId, date) + "|" + timeSlot);
+        }
+        AtomicInteger bits = occupied.computeIfAbsent(key(doctorId, date), k -> new AtomicInteger());
+        int mask = 1 << slot;
+        while (true) {
+            int current = bits.get();
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    public void markBooked(String doctorId, String date, String timeSlot) {
+        int slot = slotIndex(timeSlot);
+        if (slot < 0) {
+            otherSlots.add(key(doctorId, date) + "|" + timeSlot);
+            return;
+        }
+        AtomicInteger bits = occupied.computeIfAbsent(key(doctorId, date), k -> new AtomicInteger());
+        bits.getAndUpdate(b -> b | (1 << slot));
+    }
+
+    public void release(String doctorId, String date, String timeSlot) {
+        int slot = slotIndex(timeSlot);
+        if (slot < 0) {
+            otherSlots.remove(key(doctorId, date) + "|" + timeSlot);
+            return;
+        }
+        AtomicInteger bits = occupied.get(key(doctorId, date));
+        if (bits != null) {
+            bits.getAndUpdate(b -> b & ~(1 << slot));
+        }
+    }
+
+    // Bitset of taken standard slots for a doctor on a date
+    public int bookedSlots(String doctorId, String date) {
+        AtomicInteger bits = occupied.get(key(doctorId, date));
+        return bits == null ? 0 : bits.get();
+    }
+
+    private static String key(String doctorId, String date) {
+        return doctorId + "|" + date;
+    }
+}
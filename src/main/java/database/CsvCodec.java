@@ -0,0 +1,202 @@
+package database;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// Reads and writes the comma separated data files. A field holding a comma, quote or line
+// break is written in quotes with "" for a literal quote, so free text such as a disease
+// description can't shift the columns. Lines written before quoting existed read the same.
+// Reading parses straight out of a char buffer: a Record only holds field offsets into it,
+// and a String is made when a field is asked for.
+public class CsvCodec {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public interface RecordHandler {
+        // The record is reused for the next line, copy out what has to be kept
+        void onRecord(Record record);
+    }
+
+    public static class Record {
+        private char[] chars;
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private boolean[] escaped = new boolean[8];
+        private int size;
+
+        public int size() {
+            return size;
+        }
+
+        public String get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Field " + index + " of " + size);
+            }
+            String value = new String(chars, starts[index], ends[index] - starts[index]);
+            return escaped[index] ? value.replace("\"\"", "\"") : value;
+        }
+
+        public String[] toArray() {
+            String[] fields = new String[size];
+            for (int i = 0; i < size; i++) {
+                fields[i] = get(i);
+            }
+            return fields;
+        }
+
+        private void add(int start, int end, boolean hasEscapes) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                escaped = Arrays.copyOf(escaped, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            escaped[size] = hasEscapes;
+            size++;
+        }
+
+        private boolean isBlank() {
+            return size == 1 && starts[0] == ends[0];
+        }
+    }
+
+    public static String encode(String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendField(line, fields[i]);
+        }
+        return line.toString();
+    }
+
+    // Calls the handler once per record, blank lines are skipped
+    public static void read(Reader reader, RecordHandler handler) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        Record record = new Record();
+        record.chars = buffer;
+        int position = 0;
+        int limit = 0;
+        boolean eof = false;
+
+        while (true) {
+            int next = position < limit ? parse(buffer, position, limit, eof, record) : -1;
+            if (next >= 0) {
+                if (!record.isBlank()) {
+                    handler.onRecord(record);
+                }
+                position = next;
+                continue;
+            }
+            if (eof) {
+                return;
+            }
+
+            // The record runs past the buffer: move it to the front, grow if it fills
+            // the whole buffer, then read more and parse it again
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                record.chars = buffer;
+            }
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    // Fills the record from one line starting at from. Returns where the next line starts,
+    // or -1 when the line isn't complete in the buffer yet.
+    private static int parse(char[] buffer, int from, int limit, boolean eof, Record record) {
+        record.size = 0;
+        int i = from;
+        while (true) {
+            int start = i;
+            int end;
+            boolean hasEscapes = false;
+
+            if (i < limit && buffer[i] == '"') {
+                int j = i + 1;
+                while (true) {
+                    if (j >= limit) {
+                        if (!eof) {
+                            return -1;
+                        }
+                        break;
+                    }
+                    if (buffer[j] == '"') {
+                        if (j + 1 >= limit && !eof) {
+                            return -1;
+                        }
+                        if (j + 1 < limit && buffer[j + 1] == '"') {
+                            hasEscapes = true;
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                start = i + 1;
+                end = j;
+                // Anything between the closing quote and the next separator is dropped
+                i = Math.min(j + 1, limit);
+                while (i < limit && buffer[i] != ',' && buffer[i] != '\n') {
+                    i++;
+                }
+            } else {
+                while (i < limit && buffer[i] != ',' && buffer[i] != '\n') {
+                    i++;
+                }
+                end = i;
+                // Drop the \r of a \r\n line ending
+                if ((i == limit || buffer[i] == '\n') && end > start && buffer[end - 1] == '\r') {
+                    end--;
+                }
+            }
+
+            if (i >= limit && !eof) {
+                return -1;
+            }
+            record.add(start, end, hasEscapes);
+            if (i >= limit) {
+                return limit;
+            }
+            if (buffer[i] == '\n') {
+                return i + 1;
+            }
+            i++;
+        }
+    }
+
+    private static void appendField(StringBuilder line, String field) {
+        if (field == null) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < field.length() && !needsQuotes; i++) {
+            char c = field.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            line.append(field);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
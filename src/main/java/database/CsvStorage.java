@@ -0,0 +1,67 @@
+package database;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+// The original patients.txt / doctors.txt files. Rows the snapshot already holds
+// come from it, only lines appended after it are parsed.
+class CsvStorage implements StorageEngine {
+
+    @Override
+    public String getName() {
+        return "csv";
+    }
+
+    @Override
+    public void load(String type, Consumer<String[]> handler) {
+        String fileName = fileFor(type);
+        int tableId = tableFor(type);
+
+        long offset = 0;
+        SnapshotFile snapshot = SnapshotFile.current();
+        if (snapshot != null && tableId >= 0 && snapshot.coversFile(tableId, fileName)) {
+            SnapshotFile.Table rows = snapshot.getTable(tableId);
+            for (int row = 0; row < rows.getRows(); row++) {
+                handler.accept(rows.getRow(row));
+            }
+            offset = snapshot.getMark(tableId);
+        }
+
+        FileHandler.readRecordsFrom(fileName, offset, record -> handler.accept(record.toArray()));
+    }
+
+    @Override
+    public void append(String type, String[] record) throws IOException {
+        appendAll(type, Collections.singletonList(record));
+    }
+
+    @Override
+    public void appendAll(String type, List<String[]> records) throws IOException {
+        try (FileWriter fw = new FileWriter(fileFor(type), true);
+             BufferedWriter bw = new BufferedWriter(fw, 1 << 16);
+             PrintWriter out = new PrintWriter(bw)) {
+            for (String[] record : records) {
+                out.println(CsvCodec.encode(record));
+            }
+            if (out.checkError()) {
+                throw new IOException("Could not write " + fileFor(type));
+            }
+        }
+    }
+
+    @Override
+    public long snapshotMark(String type) {
+        return tableFor(type) >= 0 ? new File(fileFor(type)).length() : -1;
+    }
+
+    private static String fileFor(String type) {
+        return FileHandler.dataFile(type + "s.txt");
+    }
+
+    private static int tableFor(String type) {
+        return type.equals("patient") ? SnapshotFile.PATIENTS
+                : type.equals("doctor") ? SnapshotFile.DOCTORS : -1;
+    }
+}
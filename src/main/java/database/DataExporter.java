@@ -0,0 +1,125 @@
+package database;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+// Writes rows to a CSV or JSON lines file, optionally gzipped. Rows are pulled one at a
+// time and go through a fixed size buffer onto the file channel, so memory doesn't grow
+// with the row count. The file is written under a temporary name and only moved into
+// place once complete; a cancelled or failed export leaves nothing behind.
+public class DataExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int PROGRESS_EVERY = 1000;
+
+    public enum Format {
+        CSV, JSONL;
+
+        // Format and compression from a file name like patients.jsonl.gz
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase();
+            if (name.endsWith(".gz")) {
+                name = name.substring(0, name.length() - 3);
+            }
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    public interface Listener {
+        // Called every few rows and at the end. Returning false cancels the export.
+        boolean onProgress(long written, long total);
+    }
+
+    public static boolean isGzip(String fileName) {
+        return fileName.toLowerCase().endsWith(".gz");
+    }
+
+    // Returns the number of rows written. Throws CancellationException when the
+    // listener cancelled.
+    public static long export(String[] columns, Iterator<String[]> rows, long total,
+                              Path target, Format format, boolean gzip, Listener listener)
+            throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".part");
+        long written = 0;
+        boolean done = false;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            if (gzip) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                if (format == Format.CSV) {
+                    writer.write(CsvCodec.encode(columns));
+                    writer.write('\n');
+                }
+                while (rows.hasNext()) {
+                    String[] row = rows.next();
+                    if (format == Format.CSV) {
+                        writer.write(CsvCodec.encode(row));
+                    } else {
+                        writeJson(writer, columns, row);
+                    }
+                    writer.write('\n');
+                    written++;
+                    if (written % PROGRESS_EVERY == 0 && !listener.onProgress(written, total)) {
+                        throw new CancellationException("Export cancelled");
+                    }
+                }
+            }
+            done = true;
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        listener.onProgress(written, total);
+        return written;
+    }
+
+    private static void writeJson(Writer writer, String[] columns, String[] row) throws IOException {
+        writer.write('{');
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeJsonString(writer, columns[i]);
+            writer.write(':');
+            if (i < row.length && row[i] != null) {
+                writeJsonString(writer, row[i]);
+            } else {
+                writer.write("null");
+            }
+        }
+        writer.write('}');
+    }
+
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': writer.write("\\\""); break;
+                case '\\': writer.write("\\\\"); break;
+                case '\n': writer.write("\\n"); break;
+                case '\r': writer.write("\\r"); break;
+                case '\t': writer.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+}
@@ -1,88 +1,179 @@
 package database;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FileHandler {
 
-    // Save user to file
-    public static void saveUser(String id, String name, String email,
-                                String password, String type, String additionalInfo) {
-        try (FileWriter fw = new FileWriter(type + "s.txt", true);
-             BufferedWriter bw = new BufferedWriter(fw);
-             PrintWriter out = new PrintWriter(bw)) {
-            out.println(id + "," + name + "," + email + "," +
-                    password + "," + additionalInfo);
-        } catch (IOException e) {
-            System.out.println("Error saving user: " + e.getMessage());
+    // Records of one user type plus an email -> record index, loaded once
+    private static class UserTable {
+        final List<String[]> records = new ArrayList<>();
+        final Map<String, String[]> byEmail = new ConcurrentHashMap<>();
+
+        void add(String[] parts) {
+            records.add(parts);
+            if (parts.length >= 4) {
+                byEmail.putIfAbsent(parts[2], parts);
+            }
         }
     }
 
+    private static final StorageEngine storage = createStorage();
+    private static final Map<String, UserTable> userTables = new ConcurrentHashMap<>();
 
-    // Check if email exists
-    public static boolean emailExists(String email, String type) {
-        File file = new File(type + "s.txt");
-        if (!file.exists()) {
-            return false;
+    private static StorageEngine createStorage() {
+        String name = System.getProperty("healthcare.storage", "csv");
+        switch (name.toLowerCase()) {
+            case "log":
+                return new LogStorage();
+            case "memory":
+                return new MemoryStorage();
+            case "csv":
+                return new CsvStorage();
+            default:
+                System.out.println("Unknown storage '" + name + "', using csv");
+                return new CsvStorage();
         }
+    }
 
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] parts = line.split(",");
-                if (parts.length >= 3 && parts[2].equals(email)) {
-                    return true;
+    public static StorageEngine getStorage() {
+        return storage;
+    }
+
+    // Save user through the storage engine
+    public static void saveUser(String id, String name, String email,
+                                String password, String type, String additionalInfo) {
+        UserTable table = getUserTable(type);
+        synchronized (table) {
+            String[] record = {id, name, email, password, additionalInfo};
+            try {
+                storage.append(type, record);
+            } catch (IOException e) {
+                System.out.println("Error saving user: " + e.getMessage());
+                return;
+            }
+            table.add(record.clone());
+        }
+    }
+
+
+    // Saves a batch in one append and updates the email index once. Records whose
+    // email is already registered, or repeated within the batch, are skipped.
+    // Returns the records that were saved.
+    public static List<String[]> saveUsers(String type, List<String[]> records) throws IOException {
+        UserTable table = getUserTable(type);
+        synchronized (table) {
+            List<String[]> accepted = new ArrayList<>(records.size());
+            Set<String> emails = new HashSet<>();
+            for (String[] record : records) {
+                if (!table.byEmail.containsKey(record[2]) && emails.add(record[2])) {
+                    accepted.add(record);
                 }
             }
-        } catch (FileNotFoundException e) {
-            return false;
+            storage.appendAll(type, accepted);
+            for (String[] record : accepted) {
+                table.add(record.clone());
+            }
+            return accepted;
         }
+    }
 
-        return false;
+    // Check if email exists
+    public static boolean emailExists(String email, String type) {
+        return getUserTable(type).byEmail.containsKey(email);
     }
 
     // Authenticate user
     public static String[] authenticateUser(String email, String password, String type) {
-        File file = new File(type + "s.txt");
-
-        if (!file.exists()) {
+        String[] record = getUserTable(type).byEmail.get(email);
+        if (record == null || !record[3].equals(password)) {
             return null;
         }
+        return record.clone();
+    }
+
+    // Load all users of a specific type
+    public static List<String[]> loadAllUsers(String type) {
+        UserTable table = getUserTable(type);
+        synchronized (table) {
+            return new ArrayList<>(table.records);
+        }
+    }
 
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] parts = line.split(",");
-                if (parts.length >= 4 && parts[2].equals(email) && parts[3].equals(password)) {
-                    return parts;
+    // The users of a type as id, name, email, additional info. Passwords are left out,
+    // this is what exports read.
+    public static RowCursor userCursor(String type) {
+        UserTable table = getUserTable(type);
+        int rows;
+        synchronized (table) {
+            rows = table.records.size();
+        }
+        return new RowCursor(rows) {
+            @Override
+            protected void read(int from, int to, List<String[]> into) {
+                synchronized (table) {
+                    for (int i = from; i < to; i++) {
+                        String[] record = table.records.get(i);
+                        into.add(new String[]{record[0], field(record, 1), field(record, 2), field(record, 4)});
+                    }
                 }
             }
-        } catch (FileNotFoundException e) {
-            return null;
-        }
+        };
+    }
 
-        return null;
+    private static String field(String[] record, int index) {
+        return index < record.length ? record[index] : "";
     }
 
-    // Load all users of a specific type
-    public static List<String[]> loadAllUsers(String type) {
-        List<String[]> users = new ArrayList<>();
-        File file = new File(type + "s.txt");
+    // Copies the records into the list and returns the storage position they cover.
+    // Engines whose rows don't go into the snapshot leave the list empty.
+    public static long snapshotUsers(String type, List<String[]> into) {
+        UserTable table = getUserTable(type);
+        synchronized (table) {
+            long mark = storage.snapshotMark(type);
+            if (mark < 0) {
+                return 0;
+            }
+            into.addAll(table.records);
+            return mark;
+        }
+    }
+
+    // Data files live in the working directory unless healthcare.dataDir points elsewhere
+    public static String dataFile(String name) {
+        String dir = System.getProperty("healthcare.dataDir");
+        return dir == null || dir.isEmpty() ? name : new File(dir, name).getPath();
+    }
 
+    // Reads the records of a data file starting at a byte offset
+    public static void readRecordsFrom(String fileName, long offset, CsvCodec.RecordHandler handler) {
+        File file = new File(fileName);
         if (!file.exists()) {
-            return users;
+            return;
         }
 
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] parts = line.split(",");
-                users.add(parts);
-            }
-        } catch (FileNotFoundException e) {
-            System.out.println("Error loading users: " + e.getMessage());
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            channel.position(offset);
+            CsvCodec.read(Channels.newReader(channel, Charset.defaultCharset()), handler);
+        } catch (IOException e) {
+            System.out.println("Error reading " + fileName + ": " + e.getMessage());
         }
+    }
+
+    private static UserTable getUserTable(String type) {
+        return userTables.computeIfAbsent(type, FileHandler::loadUserTable);
+    }
 
-        return users;
+    // The one full read of a user type, everything after is served from the table
+    private static UserTable loadUserTable(String type) {
+        UserTable table = new UserTable();
+        storage.load(type, table::add);
+        return table;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package database;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snowflake-style ids: [41 bits ms since 2024-01-01][10 bits node][12 bits sequence].
+// Allocation is one CAS on the last timestamp + sequence, no lock. If the clock stalls or
+// steps back, ids keep counting from the last timestamp instead. The highest timestamp
+// that may be used is leased ahead and written to ids.dat, so after a restart (even with
+// the clock behind) new ids start above everything issued before. No id past the saved
+// lease is handed out: when ids.dat can't be written, nextId throws instead.
+public class IdGenerator {
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long LEASE_MILLIS = 60_000;
+
+    private static final String FILE_NAME = "ids.dat";
+    // Separate processes writing the same files need different node ids
+    private static final long NODE = Long.getLong("healthcare.nodeId", 0) & ((1L << NODE_BITS) - 1);
+
+    private static final IdGenerator INSTANCE = new IdGenerator();
+
+    private final Path leaseFile = Paths.get(FileHandler.dataFile(FILE_NAME));
+    // Last issued timestamp and sequence, (timestamp << SEQUENCE_BITS) | sequence
+    private final AtomicLong last;
+    private volatile long leasedUntil;
+
+    private IdGenerator() {
+        long lease = readLease();
+        leasedUntil = lease;
+        // Start as if the leased timestamp was used up, the next id takes a later one
+        last = new AtomicLong((lease << SEQUENCE_BITS) | SEQUENCE_MASK);
+    }
+
+    public static long nextId() {
+        return INSTANCE.next();
+    }
+
+    // Ids in the existing "prefix + number" form, e.g. nextId("APT")
+    public static String nextId(String prefix) {
+        return prefix + nextId();
+    }
+
+    private long next() {
+        long now = System.currentTimeMillis() - EPOCH;
+        long current;
+        long next;
+        do {
+            current = last.get();
+            long timestamp = current >>> SEQUENCE_BITS;
+            if (now > timestamp) {
+                next = now << SEQUENCE_BITS;
+            } else if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = current + 1;
+            } else {
+                // Sequence exhausted for this millisecond, borrow the next one
+                next = (timestamp + 1) << SEQUENCE_BITS;
+            }
+        } while (!last.compareAndSet(current, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        if (timestamp >= leasedUntil) {
+            renewLease(timestamp);
+        }
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (NODE << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    // Once a minute at most, the only place callers can wait on each other.
+    // The lease only moves once the file has it.
+    private synchronized void renewLease(long timestamp) {
+        if (timestamp < leasedUntil) {
+            return;
+        }
+        long lease = timestamp + LEASE_MILLIS;
+        Path temp = leaseFile.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            Files.write(temp, Long.toString(lease).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, leaseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Ids past the saved lease could be issued again after a restart
+            throw new UncheckedIOException("Error saving id lease", e);
+        }
+        leasedUntil = lease;
+    }
+
+    private long readLease() {
+        try {
+            if (Files.exists(leaseFile)) {
+                return Long.parseLong(new String(Files.readAllBytes(leaseFile), StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Error reading id lease: " + e.getMessage());
+        }
+        return 0;
+    }
+}
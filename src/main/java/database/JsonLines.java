@@ -0,0 +1,132 @@
+package database;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reads one line of a JSON lines file holding a flat object, the shape DataExporter
+// writes. Values are returned as text: strings unescaped, numbers and booleans as
+// written, null as null. Nested objects and arrays are not supported.
+public class JsonLines {
+
+    public static Map<String, String> parseObject(String line) {
+        Parser parser = new Parser(line);
+        Map<String, String> object = new LinkedHashMap<>();
+        parser.skipSpace();
+        parser.expect('{');
+        parser.skipSpace();
+        if (parser.peek() == '}') {
+            parser.position++;
+        } else {
+            while (true) {
+                parser.skipSpace();
+                String key = parser.string();
+                parser.skipSpace();
+                parser.expect(':');
+                parser.skipSpace();
+                object.put(key, parser.value());
+                parser.skipSpace();
+                if (parser.peek() == ',') {
+                    parser.position++;
+                    continue;
+                }
+                parser.expect('}');
+                break;
+            }
+        }
+        parser.skipSpace();
+        if (parser.position != line.length()) {
+            throw parser.error("Unexpected text after the object");
+        }
+        return object;
+    }
+
+    private static class Parser {
+        final String text;
+        int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        char peek() {
+            return position < text.length() ? text.charAt(position) : '\0';
+        }
+
+        void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        String value() {
+            if (peek() == '"') {
+                return string();
+            }
+            if (peek() == '{' || peek() == '[') {
+                throw error("Nested values are not supported");
+            }
+            int start = position;
+            while (position < text.length() && text.charAt(position) != ','
+                    && text.charAt(position) != '}' && !Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            String raw = text.substring(start, position);
+            if (raw.isEmpty()) {
+                throw error("Missing value");
+            }
+            return raw.equals("null") ? null : raw;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw error("Unterminated escape");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Bad unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (position + 1));
+        }
+    }
+}
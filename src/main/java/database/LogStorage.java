@@ -0,0 +1,68 @@
+package database;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// One checksummed binary log per user type (patients.log, doctors.log) in the same
+// RecordLog format as the appointment log. A torn last record is cut off on load, and every
+// append is fsynced before it returns.
+class LogStorage implements StorageEngine {
+    private static final byte USER = 1;
+
+    private final Map<String, RecordLog> logs = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return "log";
+    }
+
+    @Override
+    public synchronized void load(String type, Consumer<String[]> handler) {
+        if (logs.containsKey(type)) {
+            return;
+        }
+        try {
+            RecordLog log = new RecordLog(FileHandler.dataFile(type + "s.log"), 1, 0);
+            log.replay(0, (recordType, fields) -> {
+                if (recordType == USER) {
+                    handler.accept(fields);
+                }
+            });
+            logs.put(type, log);
+        } catch (IOException e) {
+            System.out.println("Error opening " + type + " log: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void append(String type, String[] record) throws IOException {
+        appendAll(type, Collections.singletonList(record));
+    }
+
+    // All records are queued before waiting, so the log writer batches them
+    // into a few writes and fsyncs
+    @Override
+    public void appendAll(String type, List<String[]> records) throws IOException {
+        RecordLog log = logs.get(type);
+        if (log == null) {
+            throw new IOException("The " + type + " log is not open");
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>(records.size());
+        for (String[] record : records) {
+            pending.add(log.append(USER, record));
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } catch (RuntimeException e) {
+            throw new IOException("Could not write " + type + " log", e.getCause());
+        }
+    }
+
+    @Override
+    public long snapshotMark(String type) {
+        return -1;
+    }
+}
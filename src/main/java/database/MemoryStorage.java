@@ -0,0 +1,53 @@
+package database;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Keeps records in this process only, nothing is read or written on disk.
+// For demos and trying things out on a throwaway dataset.
+class MemoryStorage implements StorageEngine {
+    private final Map<String, List<String[]>> records = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public void load(String type, Consumer<String[]> handler) {
+        List<String[]> stored = table(type);
+        synchronized (stored) {
+            for (String[] record : stored) {
+                handler.accept(record.clone());
+            }
+        }
+    }
+
+    @Override
+    public void append(String type, String[] record) {
+        List<String[]> stored = table(type);
+        synchronized (stored) {
+            stored.add(record.clone());
+        }
+    }
+
+    @Override
+    public void appendAll(String type, List<String[]> records) {
+        List<String[]> stored = table(type);
+        synchronized (stored) {
+            for (String[] record : records) {
+                stored.add(record.clone());
+            }
+        }
+    }
+
+    @Override
+    public long snapshotMark(String type) {
+        return -1;
+    }
+
+    private List<String[]> table(String type) {
+        return records.computeIfAbsent(type, t -> new ArrayList<>());
+    }
+}
@@ -0,0 +1,285 @@
+package database;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+// Append-only binary log of typed records, behind the appointment repository and the log
+// storage engine. Each record is [length][crc32][type][field count][fields...], the record
+// types are up to the caller. A single writer thread drains concurrent appends in batches
+// and fsyncs them together.
+public class RecordLog implements Closeable {
+    private static final int MAX_BATCH = 512;
+    private static final int MAX_RECORD = 1 << 20;
+
+    private final String fileName;
+    private final FileChannel channel;
+    private final int syncEveryRecords;
+    private final long syncIntervalMillis;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    // Held while checking closed and enqueueing, so close() can't miss a late append
+    private final Object appendLock = new Object();
+    private volatile boolean closed;
+    // End of the last fsynced batch, only the writer thread moves it
+    private long committed;
+    // Set when a failed batch couldn't be cut off again, nothing more is taken after that
+    private volatile IOException failure;
+
+    public interface RecordHandler {
+        void onRecord(byte type, String[] fields);
+    }
+
+    private static class PendingWrite {
+        final ByteBuffer frame;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(ByteBuffer frame) {
+            this.frame = frame;
+        }
+    }
+
+    // Appends are acknowledged once fsynced: after syncEveryRecords unsynced records,
+    // or once the oldest unsynced record is syncIntervalMillis old
+    public RecordLog(String fileName, int syncEveryRecords, long syncIntervalMillis) throws IOException {
+        this.fileName = fileName;
+        this.channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncEveryRecords = Math.max(1, syncEveryRecords);
+        this.syncIntervalMillis = Math.max(0, syncIntervalMillis);
+        this.writer = new Thread(this::writeLoop, "record-log-writer");
+        this.writer.setDaemon(true);
+    }
+
+    // Reads every intact record from the given byte offset, cuts off a torn tail,
+    // then starts the writer. Must be called once before append.
+    public void replay(long start, RecordHandler handler) throws IOException {
+        long goodPosition = replayFrom(start, handler);
+        if (goodPosition < channel.size()) {
+            System.out.println("Truncating damaged tail of " + fileName + " at byte " + goodPosition);
+            channel.truncate(goodPosition);
+        }
+        channel.position(channel.size());
+        committed = channel.size();
+        writer.start();
+    }
+
+    // Fails the returned future instead of throwing, also for a record that can't be encoded
+    public CompletableFuture<Void> append(byte type, String... fields) {
+        PendingWrite write;
+        try {
+            write = new PendingWrite(encode(type, fields));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        synchronized (appendLock) {
+            if (closed) {
+                write.done.completeExceptionally(new IOException(fileName + " is closed"));
+                return write.done;
+            }
+            if (failure != null) {
+                write.done.completeExceptionally(failure);
+                return write.done;
+            }
+            queue.add(write);
+        }
+        return write.done;
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (writer.isAlive()) {
+                queue.add(new PendingWrite(null));
+            }
+        }
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingWrite late;
+        while ((late = queue.poll()) != null) {
+            late.done.completeExceptionally(new IOException(fileName + " is closed"));
+        }
+        channel.close();
+    }
+
+    private long replayFrom(long start, RecordHandler handler) throws IOException {
+        long position = start;
+        channel.position(start);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        CRC32 crc = new CRC32();
+
+        while (true) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+            } catch (EOFException e) {
+                return position;
+            }
+            if (length <= 0 || length > MAX_RECORD) {
+                return position;
+            }
+
+            byte[] payload = new byte[length];
+            try {
+                in.readFully(payload);
+            } catch (EOFException e) {
+                return position;
+            }
+
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                return position;
+            }
+
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = record.readByte();
+            String[] fields = new String[record.readShort()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = record.readUTF();
+            }
+            handler.onRecord(type, fields);
+            position += 8 + length;
+        }
+    }
+
+    // writeUTF rejects a field over 64KB, and replay would stop at a record over MAX_RECORD
+    private ByteBuffer encode(byte type, String[] fields) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeShort(fields.length);
+        for (String field : fields) {
+            try {
+                out.writeUTF(field == null ? "" : field);
+            } catch (UTFDataFormatException e) {
+                throw new IOException("Field too long for " + fileName + ": " + e.getMessage(), e);
+            }
+        }
+        byte[] payload = bytes.toByteArray();
+        if (payload.length > MAX_RECORD) {
+            throw new IOException("Record too long for " + fileName + ": " + payload.length + " bytes");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(payload);
+        frame.flip();
+        return frame;
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>();
+        List<PendingWrite> unsynced = new ArrayList<>();
+        long oldestUnsynced = 0;
+        boolean stopping = false;
+
+        while (true) {
+            try {
+                PendingWrite first;
+                if (unsynced.isEmpty()) {
+                    first = queue.take();
+                } else {
+                    long wait = syncIntervalMillis - (System.currentTimeMillis() - oldestUnsynced);
+                    first = queue.poll(Math.max(0, wait), TimeUnit.MILLISECONDS);
+                }
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+
+            // close() queues a frameless marker, everything before it still gets written
+            Iterator<PendingWrite> it = batch.iterator();
+            while (it.hasNext()) {
+                if (it.next().frame == null) {
+                    it.remove();
+                    stopping = true;
+                }
+            }
+
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (!batch.isEmpty()) {
+                    ByteBuffer[] frames = new ByteBuffer[batch.size()];
+                    for (int i = 0; i < frames.length; i++) {
+                        frames[i] = batch.get(i).frame;
+                    }
+                    while (frames[frames.length - 1].hasRemaining()) {
+                        channel.write(frames);
+                    }
+                    if (unsynced.isEmpty()) {
+                        oldestUnsynced = System.currentTimeMillis();
+                    }
+                    unsynced.addAll(batch);
+                    batch.clear();
+                }
+
+                boolean syncDue = unsynced.size() >= syncEveryRecords
+                        || System.currentTimeMillis() - oldestUnsynced >= syncIntervalMillis
+                        || stopping;
+                if (!unsynced.isEmpty() && syncDue) {
+                    channel.force(false);
+                    committed = channel.position();
+                    for (PendingWrite write : unsynced) {
+                        write.done.complete(null);
+                    }
+                    unsynced.clear();
+                }
+            } catch (IOException e) {
+                for (PendingWrite write : batch) {
+                    write.done.completeExceptionally(e);
+                }
+                for (PendingWrite write : unsynced) {
+                    write.done.completeExceptionally(e);
+                }
+                batch.clear();
+                unsynced.clear();
+
+                // None of the written frames were acknowledged: cut them off so the next
+                // batch doesn't land behind a torn frame that replay would stop at
+                if (failure == null) {
+                    try {
+                        channel.truncate(committed);
+                        channel.position(committed);
+                    } catch (IOException truncateError) {
+                        System.out.println(fileName + " can't be repaired, refusing writes: "
+                                + truncateError.getMessage());
+                        failure = truncateError;
+                    }
+                }
+            }
+
+            if (stopping && queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package database;
+
+import java.util.*;
+
+// Walks the rows a table had when the cursor was opened, a chunk at a time, so the
+// table's lock is only held while one chunk is copied and memory stays the same
+// however many rows there are. Rows added later are not seen.
+public abstract class RowCursor implements Iterator<String[]> {
+    private static final int CHUNK = 1024;
+
+    private final int rows;
+    private final List<String[]> chunk = new ArrayList<>(CHUNK);
+    private int chunkStart;
+    private int position;
+
+    protected RowCursor(int rows) {
+        this.rows = rows;
+    }
+
+    // Copies rows [from, to) into the list, holding whatever lock the table needs
+    protected abstract void read(int from, int to, List<String[]> into);
+
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < rows;
+    }
+
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (position == chunkStart + chunk.size()) {
+            chunk.clear();
+            chunkStart = position;
+            read(position, Math.min(rows, position + CHUNK), chunk);
+        }
+        return chunk.get(position++ - chunkStart);
+    }
+}
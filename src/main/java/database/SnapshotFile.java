@@ -0,0 +1,290 @@
+package database;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+// Binary snapshot of patients, doctors and appointments, read through a MappedByteBuffer.
+// Layout: header, string dictionary (offsets + UTF-8 bytes), then one table per data set
+// stored column by column as int references into the dictionary (-1 for a missing field).
+// The header records how far each source file had been written, so startup only has to read
+// what was appended after the snapshot. It also records the file's identity, its modification
+// time and a checksum of the last TAIL_WINDOW bytes before the mark, to tell when a file was
+// replaced or rewritten since without reading all of it.
+public class SnapshotFile {
+    public static final String FILE_NAME = "snapshot.bin";
+
+    public static final int PATIENTS = 0;
+    public static final int DOCTORS = 1;
+    public static final int APPOINTMENTS = 2;
+    // Extra mark for the binary appointment log, the tables above mark their text files
+    public static final int APPOINTMENT_LOG = 3;
+
+    private static final int MAGIC = 0x48435333; // "HCS3", older snapshots are rebuilt
+    private static final int TABLE_COUNT = 3;
+    private static final int MARK_COUNT = 4;
+    private static final int TAIL_WINDOW = 64 * 1024;
+
+    private static SnapshotFile current;
+    private static boolean loaded;
+
+    private final ByteBuffer buffer;
+    private final long[] marks = new long[MARK_COUNT];
+    private final String[] fileKeys = new String[MARK_COUNT];
+    private final long[] modifiedTimes = new long[MARK_COUNT];
+    private final long[] checksums = new long[MARK_COUNT];
+    private final IntBuffer stringOffsets;
+    private final int stringBase;
+    private final String[] strings;
+    private final Table[] tables = new Table[TABLE_COUNT];
+
+    public static class Table {
+        private final int rows;
+        private final int columns;
+        private final IntBuffer cells;
+        private final SnapshotFile owner;
+
+        private Table(SnapshotFile owner, int rows, int columns, IntBuffer cells) {
+            this.owner = owner;
+            this.rows = rows;
+            this.columns = columns;
+            this.cells = cells;
+        }
+
+        public int getRows() { return rows; }
+        public int getColumns() { return columns; }
+
+        public String get(int row, int column) {
+            return owner.string(cells.get(column * rows + row));
+        }
+
+        // Fields of one row, trailing missing fields dropped
+        public String[] getRow(int row) {
+            int length = columns;
+            while (length > 0 && cells.get((length - 1) * rows + row) < 0) {
+                length--;
+            }
+            String[] fields = new String[length];
+            for (int column = 0; column < length; column++) {
+                fields[column] = get(row, column);
+            }
+            return fields;
+        }
+    }
+
+    private SnapshotFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        for (int i = 0; i < MARK_COUNT; i++) {
+            marks[i] = buffer.getLong();
+            byte[] key = new byte[buffer.getShort()];
+            buffer.get(key);
+            fileKeys[i] = new String(key, StandardCharsets.UTF_8);
+            modifiedTimes[i] = buffer.getLong();
+            checksums[i] = buffer.getLong();
+        }
+
+        int stringCount = buffer.getInt();
+        stringOffsets = slice(buffer, (stringCount + 1) * 4).asIntBuffer();
+        int stringBytes = stringOffsets.get(stringCount);
+        stringBase = buffer.position();
+        buffer.position(stringBase + stringBytes);
+        strings = new String[stringCount];
+
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            int rows = buffer.getInt();
+            int columns = buffer.getInt();
+            IntBuffer cells = slice(buffer, rows * columns * 4).asIntBuffer();
+            tables[i] = new Table(this, rows, columns, cells);
+        }
+    }
+
+    // The snapshot on disk, mapped once per run. Null when missing or unreadable.
+    public static synchronized SnapshotFile current() {
+        if (!loaded) {
+            loaded = true;
+            current = open(FileHandler.dataFile(FILE_NAME));
+        }
+        return current;
+    }
+
+    public static SnapshotFile open(String fileName) {
+        Path path = Paths.get(fileName);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SnapshotFile(mapped);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ignoring unreadable snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public Table getTable(int table) {
+        return tables[table];
+    }
+
+    // Byte length a source file had when the snapshot was taken
+    public long getMark(int mark) {
+        return marks[mark];
+    }
+
+    // A snapshot only applies while its source file is the same file, not older than when the
+    // snapshot was taken, at least as long as the mark and with the same bytes just before it
+    public boolean coversFile(int mark, String fileName) {
+        if (marks[mark] == 0) {
+            return true;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(fileName), BasicFileAttributes.class);
+            String key = fileKey(attributes);
+            return attributes.size() >= marks[mark]
+                    && (key.isEmpty() || key.equals(fileKeys[mark]))
+                    && attributes.lastModifiedTime().toMillis() >= modifiedTimes[mark]
+                    && tailChecksum(fileName, marks[mark]) == checksums[mark];
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            System.out.println("Ignoring snapshot, can't check " + fileName + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Inode or similar where the file system has one, empty otherwise
+    private static String fileKey(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key == null ? "" : key.toString();
+    }
+
+    // CRC32C of the TAIL_WINDOW bytes before length (fewer for a shorter file), 0 for nothing
+    static long tailChecksum(String fileName, long length) throws IOException {
+        CRC32C crc = new CRC32C();
+        if (length <= 0) {
+            return crc.getValue();
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long start = Math.max(0, length - TAIL_WINDOW);
+            ByteBuffer window = ByteBuffer.allocate((int) (length - start));
+            while (window.hasRemaining()) {
+                if (channel.read(window, start + window.position()) < 0) {
+                    throw new EOFException(fileName + " is shorter than " + length + " bytes");
+                }
+            }
+            window.flip();
+            crc.update(window);
+        }
+        return crc.getValue();
+    }
+
+    private String string(int index) {
+        if (index < 0) {
+            return null;
+        }
+        String value = strings[index];
+        if (value == null) {
+            int start = stringOffsets.get(index);
+            int end = stringOffsets.get(index + 1);
+            byte[] bytes = new byte[end - start];
+            buffer.get(stringBase + start, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    // Writes to a temp file first so a crash never leaves a half-written snapshot.
+    // sources[i] is the file marks[i] is a length of.
+    public static void write(String fileName, long[] marks, String[] sources,
+                             List<List<String[]>> tables, int[] columns) throws IOException {
+        // Only bytes before a mark are summed, so appends made meanwhile don't matter
+        String[] fileKeys = new String[MARK_COUNT];
+        long[] modifiedTimes = new long[MARK_COUNT];
+        long[] checksums = new long[MARK_COUNT];
+        for (int i = 0; i < MARK_COUNT; i++) {
+            fileKeys[i] = "";
+            if (marks[i] > 0) {
+                BasicFileAttributes attributes = Files.readAttributes(Paths.get(sources[i]), BasicFileAttributes.class);
+                fileKeys[i] = fileKey(attributes);
+                modifiedTimes[i] = attributes.lastModifiedTime().toMillis();
+                checksums[i] = tailChecksum(sources[i], marks[i]);
+            }
+        }
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        int[][] cells = new int[TABLE_COUNT][];
+
+        for (int t = 0; t < TABLE_COUNT; t++) {
+            List<String[]> rows = tables.get(t);
+            cells[t] = new int[rows.size() * columns[t]];
+            for (int row = 0; row < rows.size(); row++) {
+                String[] fields = rows.get(row);
+                for (int column = 0; column < columns[t]; column++) {
+                    int ref = -1;
+                    if (column < fields.length && fields[column] != null) {
+                        ref = dictionary.computeIfAbsent(fields[column], s -> {
+                            strings.add(s);
+                            return strings.size() - 1;
+                        });
+                    }
+                    cells[t][column * rows.size() + row] = ref;
+                }
+            }
+        }
+
+        Path target = Paths.get(fileName);
+        Path temp = Paths.get(fileName + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            for (int i = 0; i < MARK_COUNT; i++) {
+                byte[] key = fileKeys[i].getBytes(StandardCharsets.UTF_8);
+                out.writeLong(marks[i]);
+                out.writeShort(key.length);
+                out.write(key);
+                out.writeLong(modifiedTimes[i]);
+                out.writeLong(checksums[i]);
+            }
+
+            byte[][] encoded = new byte[strings.size()][];
+            out.writeInt(strings.size());
+            int offset = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(offset);
+                offset += encoded[i].length;
+            }
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+
+            for (int t = 0; t < TABLE_COUNT; t++) {
+                out.writeInt(tables.get(t).size());
+                out.writeInt(columns[t]);
+                for (int cell : cells[t]) {
+                    out.writeInt(cell);
+                }
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
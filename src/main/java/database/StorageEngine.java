@@ -0,0 +1,26 @@
+package database;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Where user records are kept. FileHandler loads each user type through the engine once
+// and serves lookups from its own cached tables, so an engine only appends records and
+// reads them back in order. Picked with -Dhealthcare.storage=csv|log|memory.
+public interface StorageEngine {
+
+    String getName();
+
+    // Every stored record of the user type ("patient", "doctor"), oldest first.
+    // Called once per type, before the first append of that type.
+    void load(String type, Consumer<String[]> handler);
+
+    void append(String type, String[] record) throws IOException;
+
+    // Appends the records in one write, used by bulk imports
+    void appendAll(String type, List<String[]> records) throws IOException;
+
+    // Position the snapshot records for the type's rows, -1 when the engine's rows
+    // don't go into the snapshot
+    long snapshotMark(String type);
+}
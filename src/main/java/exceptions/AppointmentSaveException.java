@@ -0,0 +1,10 @@
+package exceptions;
+
+// Unchecked so it can pass through Patient.bookAppointment, the slot is released on the way out
+public class AppointmentSaveException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public AppointmentSaveException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,9 @@
+package exceptions;
+
+public class InvalidStatusTransitionException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public InvalidStatusTransitionException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -2,4 +2,10 @@ package interfaces;
 
 public interface ReportGenerator {
     String generateDailyReport(String date);
+
+    // The Monday to Sunday week containing the date
+    String generateWeeklyReport(String date);
+
+    // The calendar month containing the date
+    String generateMonthlyReport(String date);
 }
@@ -0,0 +1,129 @@
+package system;
+
+import appointments.AppointmentRepository;
+import appointments.AppointmentStatistics;
+import appointments.AppointmentStatus;
+import appointments.AvailabilityEngine;
+import users.*;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Numbers for the admin, doctor and patient dashboards. Totals and the distinct patient /
+// doctor counts are lookups in counters the repository and the user directories keep
+// current; the other per-patient figures walk only that patient's rows through the
+// repository's indexes. Showing a dashboard never scans
+// all appointments or reads a file. Subscribers are told whenever a booking, status
+// change or new user may have changed a figure; the service only listens to the shared
+// statistics while it has subscribers.
+public class DashboardService {
+    private final AppointmentRepository repository;
+    private final AppointmentStatistics statistics;
+    private final AvailabilityEngine availability;
+    private final UserDirectory<Patient> patients;
+    private final UserDirectory<Doctor> doctors;
+    private final List<Runnable> subscribers = new CopyOnWriteArrayList<>();
+    // Kept so the same listener can be removed from the statistics again
+    private final Runnable statisticsListener = this::changed;
+
+    DashboardService(AppointmentRepository repository, UserDirectory<Patient> patients,
+                     UserDirectory<Doctor> doctors) {
+        this.repository = repository;
+        this.statistics = repository.getStatistics();
+        this.availability = repository.getAvailability();
+        this.patients = patients;
+        this.doctors = doctors;
+    }
+
+    // The subscriber runs on the thread that made the change and must not block
+    public synchronized void subscribe(Runnable subscriber) {
+        if (subscribers.isEmpty()) {
+            statistics.addListener(statisticsListener);
+        }
+        subscribers.add(subscriber);
+    }
+
+    // Dashboards call this when their scene is replaced, the last one detaches the service
+    public synchronized void unsubscribe(Runnable subscriber) {
+        if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+            statistics.removeListener(statisticsListener);
+        }
+    }
+
+    void changed() {
+        for (Runnable subscriber : subscribers) {
+            subscriber.run();
+        }
+    }
+
+    private static String today() {
+        return LocalDate.now().toString();
+    }
+
+    // Admin
+    public int getDoctorCount() {
+        return doctors.size();
+    }
+
+    public int getPatientCount() {
+        return patients.size();
+    }
+
+    public long getTotalAppointments() {
+        return statistics.getTotal();
+    }
+
+    public long getTodayAppointments() {
+        return statistics.getDayCount(today());
+    }
+
+    public long getPendingAppointments() {
+        return statistics.getStatusCount(AppointmentStatus.PENDING.getLabel());
+    }
+
+    // Doctor
+    public long getTodayAppointments(Doctor doctor) {
+        return statistics.getDoctorDayCount(doctor.getId(), today());
+    }
+
+    // Slots still open today after the weekly template and today's bookings
+    public int getFreeSlotsToday(Doctor doctor) {
+        return Integer.bitCount(availability.freeSlots(doctor.getId(), LocalDate.now()));
+    }
+
+    public int getPatientCount(Doctor doctor) {
+        return repository.countDistinctPatients(doctor.getId());
+    }
+
+    public long getPendingAppointments(Doctor doctor) {
+        return statistics.getDoctorStatusCount(doctor.getId(), AppointmentStatus.PENDING.getLabel());
+    }
+
+    // Patient, counted over the patient's own rows
+    public long getTotalAppointments(Patient patient) {
+        long total = 0;
+        for (long count : repository.countPatientStatuses(patient.getId()).values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getUpcomingAppointments(Patient patient) {
+        return repository.countUpcoming(patient.getId(), LocalDate.now());
+    }
+
+    public int getDoctorCount(Patient patient) {
+        return repository.countDistinctDoctors(patient.getId());
+    }
+
+    public long getPendingAppointments(Patient patient) {
+        return repository.countPatientStatuses(patient.getId())
+                .getOrDefault(AppointmentStatus.PENDING.getLabel(), 0L);
+    }
+
+    // Status -> count for the patient's chart, statuses with no appointments left out
+    public Map<String, Long> getStatusCounts(Patient patient) {
+        return repository.countPatientStatuses(patient.getId());
+    }
+}
@@ -4,18 +4,31 @@ import users.*;
 import appointments.*;
 import database.*;
 import exceptions.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.util.*;
 
 public class HealthCareSystem {
-    private List<Patient> patients;
-    private List<Doctor> doctors;
+    private UserDirectory<Patient> patients;
+    private UserDirectory<Doctor> doctors;
+    private SpecializationIndex specializations;
+    private DoctorSearchIndex doctorSearch;
+    private DashboardService dashboard;
     private Admin admin;
-    private User currentUser;
+    private SessionManager sessions;
 
     public HealthCareSystem() {
-        patients = new ArrayList<>();
-        doctors = new ArrayList<>();
+        patients = new UserDirectory<>();
+        doctors = new UserDirectory<>();
+        specializations = new SpecializationIndex();
+        doctorSearch = new DoctorSearchIndex();
+        AppointmentRepository repository = AppointmentRepository.getInstance();
+        dashboard = new DashboardService(repository, patients, doctors);
         admin = new Admin();
+        long timeoutMinutes = Long.getLong("healthcare.sessionTimeoutMinutes", 30);
+        sessions = new SessionManager(timeoutMinutes * 60_000);
         initializeSampleData();
     }
 
@@ -26,12 +39,14 @@ public class HealthCareSystem {
 
         // If no doctors exist, create sample doctors
         if (doctors.isEmpty()) {
-            doctors.add(new Doctor("Dr. Smith", "smith@hospital.com", "pass123", "General Physician"));
-            doctors.add(new Doctor("Dr. Johnson", "johnson@hospital.com", "pass123", "Dentist"));
-            doctors.add(new Doctor("Dr. Williams", "williams@hospital.com", "pass123", "Dermatologist"));
+            List<Doctor> samples = new ArrayList<>();
+            samples.add(new Doctor("Dr. Smith", "smith@hospital.com", "pass123", "General Physician"));
+            samples.add(new Doctor("Dr. Johnson", "johnson@hospital.com", "pass123", "Dentist"));
+            samples.add(new Doctor("Dr. Williams", "williams@hospital.com", "pass123", "Dermatologist"));
+            addDoctors(samples);
 
             // Save sample doctors to file
-            for (Doctor doctor : doctors) {
+            for (Doctor doctor : samples) {
                 FileHandler.saveUser(doctor.getId(), doctor.getName(),
                         doctor.getEmail(), doctor.getPassword(),
                         "doctor", doctor.getSpecialization());
@@ -40,25 +55,38 @@ public class HealthCareSystem {
     }
 
     private void loadDoctorsFromFile() {
-        List<String[]> doctorData = FileHandler.loadAllUsers("doctor");
-        for (String[] data : doctorData) {
-            if (data.length >= 5) {
-                Doctor doctor = new Doctor(data[1], data[2], data[3], data[4]);
-                doctor.setId(data[0]);
-                doctors.add(doctor);
+        List<Doctor> loaded = new ArrayList<>();
+        for (String[] data : FileHandler.loadAllUsers("doctor")) {
+            Doctor doctor = Doctor.fromRecord(data);
+            if (doctor != null) {
+                loaded.add(doctor);
             }
         }
+        addDoctors(loaded);
+    }
+
+    // Every doctor goes through here so the statistics and the search indexes know it
+    private void addDoctors(List<Doctor> added) {
+        AppointmentStatistics statistics = AppointmentRepository.getInstance().getStatistics();
+        for (Doctor doctor : added) {
+            statistics.registerDoctor(doctor.getId(), doctor.getSpecialization());
+        }
+        doctors.addAll(added);
+        specializations.addAll(added);
+        doctorSearch.addAll(added);
+        dashboard.changed();
     }
 
     private void loadPatientsFromFile() {
-        List<String[]> patientData = FileHandler.loadAllUsers("patient");
-        for (String[] data : patientData) {
-            if (data.length >= 4) {
-                Patient patient = new Patient(data[1], data[2], data[3]);
-                patient.setId(data[0]);
-                patients.add(patient);
+        List<Patient> loaded = new ArrayList<>();
+        for (String[] data : FileHandler.loadAllUsers("patient")) {
+            Patient patient = Patient.fromRecord(data);
+            if (patient != null) {
+                loaded.add(patient);
             }
         }
+        patients.addAll(loaded);
+        dashboard.changed();
     }
 
     // Patient registration with exception handling
@@ -71,6 +99,7 @@ public class HealthCareSystem {
 
         Patient patient = new Patient(name, email, password);
         patients.add(patient);
+        dashboard.changed();
 
         // Save to file
         FileHandler.saveUser(patient.getId(), name, email, password,
@@ -79,12 +108,23 @@ public class HealthCareSystem {
         return patient;
     }
 
-    public User getCurrentUser() {
-        return currentUser;
+    public SessionManager getSessions() {
+        return sessions;
+    }
+
+    // Logs in and opens a session, the token identifies the user from then on
+    public SessionManager.Session login(String email, String password, String userType)
+            throws UserNotFoundException {
+        return sessions.open(loginUser(email, password, userType));
+    }
+
+    // The user behind a session token, null once it is logged out or expired
+    public User getSessionUser(String token) {
+        return sessions.resolve(token);
     }
 
-    public void setCurrentUser(User currentUser) {
-        this.currentUser = currentUser;
+    public void logout(String token) {
+        sessions.close(token);
     }
 
     // User login
@@ -96,7 +136,6 @@ public class HealthCareSystem {
             Admin admin = new Admin();
             if (admin.validateCredentials(email, password)) {
                 admin.login();
-                currentUser = admin;  // Set current user
                 return admin;
             } else {
                 throw new UserNotFoundException("Invalid admin credentials!");
@@ -112,17 +151,26 @@ public class HealthCareSystem {
 
         switch (userType.toLowerCase()) {
             case "patient":
-                Patient patient = new Patient(userData[1], userData[2], userData[3]);
-                patient.setId(userData[0]);
+                // The loaded instance, so the session shares its state with the lists
+                Patient patient = findPatient(userData[0]);
+                if (patient == null) {
+                    patient = Patient.fromRecord(userData);
+                }
+                if (patient == null) {
+                    throw new UserNotFoundException("Invalid email or password!");
+                }
                 patient.login();
-                currentUser = patient;  // Set current user
                 return patient;
 
             case "doctor":
-                Doctor doctor = new Doctor(userData[1], userData[2], userData[3], userData[4]);
-                doctor.setId(userData[0]);
+                Doctor doctor = findDoctor(userData[0]);
+                if (doctor == null) {
+                    doctor = Doctor.fromRecord(userData);
+                }
+                if (doctor == null) {
+                    throw new UserNotFoundException("Invalid email or password!");
+                }
                 doctor.login();
-                currentUser = doctor;  // Set current user
                 return doctor;
 
             default:
@@ -140,17 +188,24 @@ public class HealthCareSystem {
             throw new InvalidDateException("Invalid date format! Use YYYY-MM-DD");
         }
 
-        // Check if slot is already booked
-        List<Appointment> appointments = Appointment.loadAppointmentsFromFile();
-        for (Appointment app : appointments) {
-            if (app.getDoctorId().equals(doctor.getId()) &&
-                    app.getDate().equals(date) &&
-                    app.getTimeSlot().equals(timeSlot)) {
-                throw new SlotFullException("This time slot is already booked!");
-            }
+        // Doctor's weekly schedule first, then reserve the slot in one step
+        // so concurrent bookings can't both win
+        AppointmentRepository repository = AppointmentRepository.getInstance();
+        if (!repository.getAvailability().isWorking(doctor.getId(), date, timeSlot)) {
+            throw new SlotFullException("The doctor is not available at this time!");
+        }
+        SlotOccupancy slots = repository.getSlotOccupancy();
+        if (!slots.tryReserve(doctor.getId(), date, timeSlot)) {
+            throw new SlotFullException("This time slot is already booked!");
         }
 
-        patient.bookAppointment(doctor.getId(), date, timeSlot, disease);
+        // Give the slot back if the appointment wasn't written (AppointmentSaveException)
+        try {
+            patient.bookAppointment(doctor.getId(), date, timeSlot, disease);
+        } catch (RuntimeException e) {
+            slots.release(doctor.getId(), date, timeSlot);
+            throw e;
+        }
     }
 
     private boolean isValidDate(String date) {
@@ -158,36 +213,172 @@ public class HealthCareSystem {
         return date != null && date.matches("\\d{4}-\\d{2}-\\d{2}");
     }
 
-    // Search doctors with method overloading
+    // Search doctors with method overloading, both start from the specialization's posting list
     public List<Doctor> searchDoctor(String specialization) {
-        return Doctor.searchDoctor(doctors, specialization);
+        return specializations.find(specialization);
     }
 
     public List<Doctor> searchDoctor(String specialization, String date) {
-        return Doctor.searchDoctor(doctors, specialization, date);
+        return Doctor.searchDoctor(specializations.find(specialization), specialization, date);
+    }
+
+    // Free-text doctor search over name, specialization and email, ranked
+    public List<Doctor> searchDoctorsByText(String text) {
+        return doctorSearch.search(text);
+    }
+
+    // Specializations of the registered doctors, for the search combo box
+    public List<String> getSpecializations() {
+        return specializations.getSpecializations();
+    }
+
+    // Time slots the doctor still has open on the date
+    public List<String> getFreeSlots(Doctor doctor, LocalDate date) {
+        return AppointmentRepository.getInstance().getAvailability().freeSlotNames(doctor.getId(), date);
     }
 
     // Get all appointments for dashboard/chart
     public Map<String, Integer> getAppointmentStats() {
-        List<Appointment> appointments = Appointment.loadAppointmentsFromFile();
         Map<String, Integer> stats = new HashMap<>();
+        for (Map.Entry<String, Long> entry : getStatistics().getStatusCounts().entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().intValue());
+        }
+        return stats;
+    }
+
+    // Figures for the role dashboards, with change notifications
+    public DashboardService getDashboard() {
+        return dashboard;
+    }
 
-        for (Appointment app : appointments) {
-            String status = app.getStatus();
-            stats.put(status, stats.getOrDefault(status, 0) + 1);
+    // Bulk import of "doctor" or "patient" rows from a CSV or JSON lines file. The batch
+    // is saved in one append and added to the directories and search indexes once.
+    public UserImporter.Result importUsers(String type, Path file) throws IOException {
+        UserImporter importer = new UserImporter(type);
+        List<String[]> rows = importer.read(file);
+
+        String prefix = type.equals("doctor") ? "D" : "P";
+        List<String[]> records = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            records.add(new String[]{IdGenerator.nextId(prefix), row[0], row[1], row[2], row[3]});
         }
+        List<String[]> saved = FileHandler.saveUsers(type, records);
+        importer.saved(saved.size(), records.size());
 
-        return stats;
+        if (type.equals("doctor")) {
+            List<Doctor> added = new ArrayList<>(saved.size());
+            for (String[] record : saved) {
+                added.add(Doctor.fromRecord(record));
+            }
+            addDoctors(added);
+        } else {
+            List<Patient> added = new ArrayList<>(saved.size());
+            for (String[] record : saved) {
+                added.add(Patient.fromRecord(record));
+            }
+            patients.addAll(added);
+            dashboard.changed();
+        }
+        return importer.getResult();
+    }
+
+    // Column names for exports, passwords are never exported
+    public static final String[] PATIENT_COLUMNS = {"id", "name", "email", "medicalHistory"};
+    public static final String[] DOCTOR_COLUMNS = {"id", "name", "email", "specialization"};
+    public static final String[] APPOINTMENT_COLUMNS = {"appointmentId", "patientId", "doctorId",
+            "date", "timeSlot", "disease", "status"};
+
+    // Streams "patients", "doctors" or "appointments" to the file. CSV or JSON lines
+    // and gzip are picked from the file name (.csv, .jsonl, .gz).
+    public long exportTable(String table, Path target, DataExporter.Listener listener) throws IOException {
+        RowCursor rows;
+        String[] columns;
+        switch (table) {
+            case "patients":
+                rows = FileHandler.userCursor("patient");
+                columns = PATIENT_COLUMNS;
+                break;
+            case "doctors":
+                rows = FileHandler.userCursor("doctor");
+                columns = DOCTOR_COLUMNS;
+                break;
+            case "appointments":
+                rows = AppointmentRepository.getInstance().cursor();
+                columns = APPOINTMENT_COLUMNS;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown table: " + table);
+        }
+        String fileName = target.getFileName().toString();
+        return DataExporter.export(columns, rows, rows.getRows(), target,
+                DataExporter.Format.fromFileName(fileName), DataExporter.isGzip(fileName), listener);
+    }
+
+    // Streams the given appointments, e.g. a filtered list, the same way
+    public long exportAppointments(List<Appointment> appointments, Path target,
+                                   DataExporter.Listener listener) throws IOException {
+        Iterator<Appointment> source = appointments.iterator();
+        Iterator<String[]> rows = new Iterator<String[]>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public String[] next() {
+                return source.next().toFields();
+            }
+        };
+        String fileName = target.getFileName().toString();
+        return DataExporter.export(APPOINTMENT_COLUMNS, rows, appointments.size(), target,
+                DataExporter.Format.fromFileName(fileName), DataExporter.isGzip(fileName), listener);
+    }
+
+    // Daily, weekly and monthly report files for all doctors, written under reports/
+    public List<Path> generateReports(LocalDate date) throws IOException {
+        return new ReportEngine(getAllDoctors()).writeReports(date, Paths.get(FileHandler.dataFile("reports")));
+    }
+
+    // Live counters by status, doctor, day and specialization
+    public AppointmentStatistics getStatistics() {
+        return AppointmentRepository.getInstance().getStatistics();
+    }
+
+    // Appointment status changes, persisted through the repository
+    public void updateAppointmentStatus(String appointmentId, AppointmentStatus status)
+            throws InvalidStatusTransitionException {
+        AppointmentRepository.getInstance().updateStatus(appointmentId, status);
+    }
+
+    public void cancelAppointment(String appointmentId) throws InvalidStatusTransitionException {
+        updateAppointmentStatus(appointmentId, AppointmentStatus.CANCELLED);
+    }
+
+    public void confirmAppointment(String appointmentId) throws InvalidStatusTransitionException {
+        updateAppointmentStatus(appointmentId, AppointmentStatus.CONFIRMED);
     }
 
-    // Get all doctors
+    public void completeAppointment(String appointmentId) throws InvalidStatusTransitionException {
+        updateAppointmentStatus(appointmentId, AppointmentStatus.COMPLETED);
+    }
+
+    // Get all doctors (read-only snapshot, no copy)
     public List<Doctor> getAllDoctors() {
-        return new ArrayList<>(doctors);
+        return doctors.getAll();
     }
 
-    // Get all patients
+    // Get all patients (read-only snapshot, no copy)
     public List<Patient> getAllPatients() {
-        return new ArrayList<>(patients);
+        return patients.getAll();
+    }
+
+    // Doctor for an appointment's doctorId, null if unknown
+    public Doctor findDoctor(String doctorId) {
+        return doctors.findById(doctorId);
+    }
+
+    public Patient findPatient(String patientId) {
+        return patients.findById(patientId);
     }
 
     // Add a new doctor (admin function)
@@ -198,17 +389,16 @@ public class HealthCareSystem {
             throw new DuplicateEmailException("Doctor email already exists!");
         }
 
-        admin.addDoctor(name, email, password, specialization);
-
-        // Add to local list
-        Doctor newDoctor = new Doctor(name, email, password, specialization);
-        doctors.add(newDoctor);
+        // Add the saved doctor to the local list, so both have the same id
+        Doctor newDoctor = admin.addDoctor(name, email, password, specialization);
+        addDoctors(Collections.singletonList(newDoctor));
     }
 
     // Main method for testing
     public static void main(String[] args) {
         HealthCareSystem system = new HealthCareSystem();
         Scanner scanner = new Scanner(System.in);
+        String sessionToken = null;
 
         System.out.println("=== Smart Healthcare System ===");
         System.out.println("1. Register Patient");
@@ -246,14 +436,16 @@ public class HealthCareSystem {
                         System.out.print("Enter user type (patient/doctor/admin): ");
                         String userType = scanner.nextLine();
 
-                        User user = system.loginUser(loginEmail, loginPassword, userType);
-                        System.out.println("Welcome, " + user.getName() + "!");
+                        SessionManager.Session session = system.login(loginEmail, loginPassword, userType);
+                        sessionToken = session.getToken();
+                        System.out.println("Welcome, " + session.getUser().getName() + "!");
                         break;
 
                     case 3:
-                        // Simplified appointment booking
-                        if (system.getAllPatients().isEmpty()) {
-                            System.out.println("No patients found. Please register first.");
+                        // Simplified appointment booking for the logged-in patient
+                        User current = system.getSessionUser(sessionToken);
+                        if (!(current instanceof Patient)) {
+                            System.out.println("Please log in as a patient first.");
                             break;
                         }
 
@@ -274,7 +466,7 @@ public class HealthCareSystem {
                         }
 
                         if (selectedDoctor != null) {
-                            Patient selectedPatient = system.getAllPatients().get(0);
+                            Patient selectedPatient = (Patient) current;
                             System.out.print("Enter date (YYYY-MM-DD): ");
                             String date = scanner.nextLine();
                             System.out.print("Enter time slot (9AM, 11AM, 2PM, 4PM, 6PM): ");
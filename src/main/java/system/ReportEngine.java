@@ -0,0 +1,211 @@
+package system;
+
+import appointments.*;
+import database.CsvCodec;
+import users.Doctor;
+import users.SpecializationIndex;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Daily, weekly and monthly reports for every doctor and specialization in one go.
+// The appointments of the widest period are fetched once through the date index and
+// counted in parallel on a ForkJoinPool, each part into its own table. The merged
+// counts are then written to CSV files one row at a time.
+public class ReportEngine {
+    private static final int SPLIT_THRESHOLD = 4096;
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+    // Per period: total, then one column per status
+    private static final int COLUMNS = 1 + STATUSES.length;
+
+    private static final int WEEKLY = 1;
+    private static final int MONTHLY = 2;
+    private static final String[] PERIOD_NAMES = {"daily", "weekly", "monthly"};
+
+    private final List<Doctor> doctors;
+    private final ForkJoinPool pool;
+
+    public ReportEngine(List<Doctor> doctors) {
+        this(doctors, ForkJoinPool.commonPool());
+    }
+
+    public ReportEngine(List<Doctor> doctors, ForkJoinPool pool) {
+        this.doctors = doctors;
+        this.pool = pool;
+    }
+
+    // First and last day of each period around the date, as ISO strings so
+    // appointment dates can be compared without parsing
+    private static String[][] periods(LocalDate date) {
+        LocalDate monday = date.with(DayOfWeek.MONDAY);
+        LocalDate firstOfMonth = date.withDayOfMonth(1);
+        return new String[][]{
+                {date.toString(), date.toString()},
+                {monday.toString(), monday.plusDays(6).toString()},
+                {firstOfMonth.toString(), firstOfMonth.plusMonths(1).minusDays(1).toString()}
+        };
+    }
+
+    // doctorId -> counts, PERIOD_NAMES.length * COLUMNS longs per doctor
+    private static class CountTask extends RecursiveTask<Map<String, long[]>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Appointment> appointments;
+        private final String[][] periods;
+        private final int from;
+        private final int to;
+
+        CountTask(List<Appointment> appointments, String[][] periods, int from, int to) {
+            this.appointments = appointments;
+            this.periods = periods;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, long[]> compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                CountTask left = new CountTask(appointments, periods, from, middle);
+                left.fork();
+                Map<String, long[]> right = new CountTask(appointments, periods, middle, to).compute();
+                return merge(left.join(), right);
+            }
+
+            Map<String, long[]> counts = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                Appointment appointment = appointments.get(i);
+                String date = appointment.getDate();
+                AppointmentStatus status = AppointmentStatus.fromLabel(appointment.getStatus());
+                long[] row = null;
+                for (int p = 0; p < periods.length; p++) {
+                    if (date.compareTo(periods[p][0]) < 0 || date.compareTo(periods[p][1]) > 0) {
+                        continue;
+                    }
+                    if (row == null) {
+                        row = counts.computeIfAbsent(appointment.getDoctorId(),
+                                k -> new long[PERIOD_NAMES.length * COLUMNS]);
+                    }
+                    row[p * COLUMNS]++;
+                    if (status != null) {
+                        row[p * COLUMNS + 1 + status.ordinal()]++;
+                    }
+                }
+            }
+            return counts;
+        }
+
+        private static Map<String, long[]> merge(Map<String, long[]> a, Map<String, long[]> b) {
+            Map<String, long[]> into = a.size() >= b.size() ? a : b;
+            Map<String, long[]> from = into == a ? b : a;
+            for (Map.Entry<String, long[]> entry : from.entrySet()) {
+                long[] target = into.putIfAbsent(entry.getKey(), entry.getValue());
+                if (target != null) {
+                    long[] source = entry.getValue();
+                    for (int i = 0; i < target.length; i++) {
+                        target[i] += source[i];
+                    }
+                }
+            }
+            return into;
+        }
+    }
+
+    // Counts per doctor for the day, week and month around the date
+    private Map<String, long[]> count(LocalDate date) {
+        String[][] periods = periods(date);
+        String first = periods[WEEKLY][0].compareTo(periods[MONTHLY][0]) < 0 ? periods[WEEKLY][0] : periods[MONTHLY][0];
+        String last = periods[WEEKLY][1].compareTo(periods[MONTHLY][1]) > 0 ? periods[WEEKLY][1] : periods[MONTHLY][1];
+
+        List<Appointment> appointments = AppointmentRepository.getInstance().query(
+                new AppointmentQuery().between(LocalDate.parse(first), LocalDate.parse(last)));
+        return pool.invoke(new CountTask(appointments, periods, 0, appointments.size()));
+    }
+
+    // Writes <period>-doctors-<date>.csv and <period>-specializations-<date>.csv
+    // for the day, week and month around the date, and returns the files
+    public List<Path> writeReports(LocalDate date, Path directory) throws IOException {
+        Map<String, long[]> counts = count(date);
+        String[][] periods = periods(date);
+        Files.createDirectories(directory);
+
+        // Specialization totals, keyed like the specialization index
+        Map<String, long[]> bySpecialization = new TreeMap<>();
+        Map<String, String> specializationNames = new HashMap<>();
+        for (Doctor doctor : doctors) {
+            long[] row = counts.get(doctor.getId());
+            String key = SpecializationIndex.fold(doctor.getSpecialization());
+            specializationNames.putIfAbsent(key, doctor.getSpecialization() == null ? ""
+                    : doctor.getSpecialization().trim());
+            long[] total = bySpecialization.computeIfAbsent(key, k -> new long[PERIOD_NAMES.length * COLUMNS]);
+            if (row != null) {
+                for (int i = 0; i < row.length; i++) {
+                    total[i] += row[i];
+                }
+            }
+        }
+
+        // Appointments whose doctor isn't registered still get a row
+        Set<String> unknown = new TreeSet<>(counts.keySet());
+        for (Doctor doctor : doctors) {
+            unknown.remove(doctor.getId());
+        }
+
+        List<Path> written = new ArrayList<>();
+        for (int p = 0; p < PERIOD_NAMES.length; p++) {
+            Path doctorFile = directory.resolve(PERIOD_NAMES[p] + "-doctors-" + date + ".csv");
+            try (BufferedWriter out = Files.newBufferedWriter(doctorFile)) {
+                writeHeader(out, "doctorId", "name", "specialization");
+                for (Doctor doctor : doctors) {
+                    writeRow(out, counts.get(doctor.getId()), p, periods[p],
+                            doctor.getId(), doctor.getName(), doctor.getSpecialization());
+                }
+                for (String doctorId : unknown) {
+                    writeRow(out, counts.get(doctorId), p, periods[p], doctorId, "Unknown", "");
+                }
+            }
+            written.add(doctorFile);
+
+            Path specializationFile = directory.resolve(PERIOD_NAMES[p] + "-specializations-" + date + ".csv");
+            try (BufferedWriter out = Files.newBufferedWriter(specializationFile)) {
+                writeHeader(out, "specialization");
+                for (Map.Entry<String, long[]> entry : bySpecialization.entrySet()) {
+                    writeRow(out, entry.getValue(), p, periods[p], specializationNames.get(entry.getKey()));
+                }
+            }
+            written.add(specializationFile);
+        }
+        return written;
+    }
+
+    private static void writeHeader(BufferedWriter out, String... keys) throws IOException {
+        List<String> header = new ArrayList<>(Arrays.asList(keys));
+        header.add("from");
+        header.add("to");
+        header.add("total");
+        for (AppointmentStatus status : STATUSES) {
+            header.add(status.getLabel().toLowerCase());
+        }
+        out.write(CsvCodec.encode(header.toArray(new String[0])));
+        out.newLine();
+    }
+
+    private static void writeRow(BufferedWriter out, long[] counts, int period, String[] range,
+                                 String... keys) throws IOException {
+        String[] fields = Arrays.copyOf(keys, keys.length + 2 + COLUMNS);
+        fields[keys.length] = range[0];
+        fields[keys.length + 1] = range[1];
+        for (int c = 0; c < COLUMNS; c++) {
+            fields[keys.length + 2 + c] = Long.toString(counts == null ? 0 : counts[period * COLUMNS + c]);
+        }
+        out.write(CsvCodec.encode(fields));
+        out.newLine();
+    }
+}
@@ -0,0 +1,151 @@
+package system;
+
+import users.User;
+
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Logged-in users by session token. A lookup is one ConcurrentHashMap get and a
+// timestamp write, so any number of sessions can be open at once. Idle sessions are
+// expired by a timing wheel: a session sits in the slot its deadline falls in, and
+// when the wheel reaches that slot it is either expired or, if it was used since,
+// moved to the slot of its new deadline. Using a session never touches the wheel.
+public class SessionManager {
+    private static final int WHEEL_SLOTS = 64;
+
+    private final long idleTimeoutMillis;
+    private final long tickMillis;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    // Only the wheel thread touches the slots; new sessions wait in the queue
+    private final List<ArrayDeque<Session>> wheel = new ArrayList<>(WHEEL_SLOTS);
+    private final Queue<Session> added = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService ticker;
+    private long tick;
+
+    public static class Session {
+        private final String token;
+        private final User user;
+        private final long createdAt;
+        private volatile long lastUsed;
+        private volatile boolean closed;
+        // Wheel turns left before the slot holding the session is really due
+        private long rounds;
+
+        Session(String token, User user, long now) {
+            this.token = token;
+            this.user = user;
+            this.createdAt = now;
+            this.lastUsed = now;
+        }
+
+        public String getToken() { return token; }
+        public User getUser() { return user; }
+        public long getCreatedAt() { return createdAt; }
+        public long getLastUsed() { return lastUsed; }
+    }
+
+    public SessionManager(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = Math.max(1, idleTimeoutMillis);
+        this.tickMillis = Math.max(1, this.idleTimeoutMillis / WHEEL_SLOTS);
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Session open(User user) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Session session = new Session(token, user, System.currentTimeMillis());
+        sessions.put(token, session);
+        added.add(session);
+        return session;
+    }
+
+    // The session's user, or null when the token is unknown, logged out or idle too long.
+    // Counts as activity.
+    public User resolve(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        // The wheel may not have reached it yet
+        if (now - session.lastUsed >= idleTimeoutMillis) {
+            close(session);
+            return null;
+        }
+        session.lastUsed = now;
+        return session.user;
+    }
+
+    public void close(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session != null) {
+            close(session);
+        }
+    }
+
+    public int getOpenSessions() {
+        return sessions.size();
+    }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private void close(Session session) {
+        session.closed = true;
+        sessions.remove(session.token, session);
+    }
+
+    // One wheel step: file new sessions, then expire or re-file the due slot
+    private void advance() {
+        try {
+            long now = System.currentTimeMillis();
+            Session session;
+            while ((session = added.poll()) != null) {
+                schedule(session, session.lastUsed + idleTimeoutMillis, now);
+            }
+
+            tick++;
+            ArrayDeque<Session> slot = wheel.get((int) (tick % WHEEL_SLOTS));
+            int due = slot.size();
+            for (int i = 0; i < due; i++) {
+                session = slot.poll();
+                if (session.closed) {
+                    continue;
+                }
+                if (session.rounds > 0) {
+                    session.rounds--;
+                    slot.add(session);
+                    continue;
+                }
+                long deadline = session.lastUsed + idleTimeoutMillis;
+                if (deadline <= now) {
+                    close(session);
+                } else {
+                    schedule(session, deadline, now);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep the wheel turning, a failed step only delays expiry
+            System.out.println("Session expiry failed: " + e.getMessage());
+        }
+    }
+
+    private void schedule(Session session, long deadline, long now) {
+        long ticks = Math.max(1, (deadline - now + tickMillis - 1) / tickMillis);
+        session.rounds = (ticks - 1) / WHEEL_SLOTS;
+        wheel.get((int) ((tick + ticks) % WHEEL_SLOTS)).add(session);
+    }
+}
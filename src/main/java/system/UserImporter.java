@@ -0,0 +1,193 @@
+package system;
+
+import database.CsvCodec;
+import database.DataExporter;
+import database.FileHandler;
+import database.JsonLines;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+// Reads doctors or patients for a bulk import from a CSV or JSON lines file (gzipped
+// too, like the exports). Rows are validated and deduplicated in parallel; the valid
+// ones come back in file order for HealthCareSystem to save in one batch.
+public class UserImporter {
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final int MAX_ERRORS = 100;
+
+    public static class Result {
+        private int rows;
+        private int imported;
+        private int duplicates;
+        private int invalid;
+        private final List<String> errors = new ArrayList<>();
+
+        public int getRows() { return rows; }
+        public int getImported() { return imported; }
+        public int getDuplicates() { return duplicates; }
+        public int getInvalid() { return invalid; }
+        // The first few problems, one line each
+        public List<String> getErrors() { return errors; }
+
+        public String summary() {
+            return imported + " imported, " + duplicates + " duplicate emails skipped, "
+                    + invalid + " invalid rows (" + rows + " rows read)";
+        }
+    }
+
+    // Input row: name, email, password, specialization or medical history
+    private static class Row {
+        final int number;
+        final String[] fields;
+        String error;
+
+        Row(int number, String[] fields, String error) {
+            this.number = number;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+
+    private final String type;
+    private final String extraColumn;
+    private final Result result = new Result();
+
+    UserImporter(String type) {
+        if (!type.equals("doctor") && !type.equals("patient")) {
+            throw new IllegalArgumentException("Unknown user type: " + type);
+        }
+        this.type = type;
+        this.extraColumn = type.equals("doctor") ? "specialization" : "medicalHistory";
+    }
+
+    Result getResult() {
+        return result;
+    }
+
+    // Valid, not yet registered rows in file order
+    List<String[]> read(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        List<Row> rows;
+        try (InputStream in = open(file, DataExporter.isGzip(fileName));
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            rows = DataExporter.Format.fromFileName(fileName) == DataExporter.Format.JSONL
+                    ? readJsonLines(reader) : readCsv(reader);
+        }
+        result.rows = rows.size();
+
+        rows.parallelStream().forEach(this::validate);
+
+        // The first row with an email wins, found in parallel
+        Map<String, Integer> first = new ConcurrentHashMap<>();
+        rows.parallelStream()
+                .filter(row -> row.error == null)
+                .forEach(row -> first.merge(row.fields[1], row.number, Math::min));
+
+        List<String[]> valid = new ArrayList<>();
+        for (Row row : rows) {
+            if (row.error != null) {
+                result.invalid++;
+                if (result.errors.size() < MAX_ERRORS) {
+                    result.errors.add("Row " + row.number + ": " + row.error);
+                }
+            } else if (first.get(row.fields[1]) != row.number || FileHandler.emailExists(row.fields[1], type)) {
+                result.duplicates++;
+            } else {
+                valid.add(row.fields);
+            }
+        }
+        return valid;
+    }
+
+    // How many of the valid rows were saved, the rest were registered meanwhile
+    void saved(int saved, int offered) {
+        result.imported = saved;
+        result.duplicates += offered - saved;
+    }
+
+    private static InputStream open(Path file, boolean gzip) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+        return gzip ? new GZIPInputStream(in, 1 << 16) : in;
+    }
+
+    // Columns by header when the first row names an "email" column, otherwise
+    // name, email, password, specialization / medical history
+    private List<Row> readCsv(Reader reader) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        int[] columns = {0, 1, 2, 3};
+        boolean[] first = {true};
+        CsvCodec.read(reader, record -> {
+            String[] fields = record.toArray();
+            if (first[0]) {
+                first[0] = false;
+                List<String> header = new ArrayList<>();
+                for (String field : fields) {
+                    header.add(field.trim().toLowerCase());
+                }
+                if (header.contains("email")) {
+                    String[] names = {"name", "email", "password", extraColumn.toLowerCase()};
+                    for (int i = 0; i < names.length; i++) {
+                        columns[i] = header.indexOf(names[i]);
+                    }
+                    return;
+                }
+            }
+            String[] row = new String[4];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = columns[i] >= 0 && columns[i] < fields.length ? fields[columns[i]] : null;
+            }
+            rows.add(new Row(rows.size() + 1, row, null));
+        });
+        return rows;
+    }
+
+    private List<Row> readJsonLines(Reader reader) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader, 1 << 16);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                Map<String, String> object = JsonLines.parseObject(line);
+                rows.add(new Row(rows.size() + 1, new String[]{object.get("name"), object.get("email"),
+                        object.get("password"), object.get(extraColumn)}, null));
+            } catch (IllegalArgumentException e) {
+                rows.add(new Row(rows.size() + 1, null, e.getMessage()));
+            }
+        }
+        return rows;
+    }
+
+    // Trims the fields and fills in the medical history default, or sets the row's error
+    private void validate(Row row) {
+        if (row.error != null) {
+            return;
+        }
+        String[] fields = row.fields;
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fields[i] == null ? "" : fields[i].trim();
+        }
+        if (fields[0].isEmpty()) {
+            row.error = "Missing name";
+        } else if (!EMAIL.matcher(fields[1]).matches()) {
+            row.error = "Invalid email '" + fields[1] + "'";
+        } else if (fields[2].isEmpty()) {
+            // No shared fallback password, every account needs its own
+            row.error = "Missing password";
+        } else if (type.equals("doctor") && fields[3].isEmpty()) {
+            row.error = "Missing specialization";
+        } else {
+            if (fields[3].isEmpty()) {
+                fields[3] = "No medical history";
+            }
+        }
+    }
+}
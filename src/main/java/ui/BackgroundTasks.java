@@ -0,0 +1,110 @@
+package ui;
+
+import javafx.application.Platform;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Runs data loading off the JavaFX Application Thread and hands the result back through
+// Platform.runLater. Tasks share a key per kind of work; starting a new one cancels the
+// previous one, and a superseded task never publishes its result. Writes go through run()
+// instead, since a write still happens after its future is cancelled.
+public class BackgroundTasks {
+    private static final int WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_LIMIT = 256;
+
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(
+            WORKERS, WORKERS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(QUEUE_LIMIT), new WorkerFactory());
+
+    private final Map<String, CompletableFuture<?>> running = new ConcurrentHashMap<>();
+
+    public interface Task<T> {
+        T call() throws Exception;
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ui-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(String key, Task<T> task,
+                                           Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<?> previous = running.put(key, future);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+
+        execute(future, task);
+
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            // Only the latest task for a key may touch the UI
+            if (!running.remove(key, future)) {
+                return;
+            }
+            if (error == null) {
+                onSuccess.accept(result);
+            } else if (!(error instanceof CancellationException)) {
+                onError.accept(unwrap(error));
+            }
+        }));
+        return future;
+    }
+
+    // Runs a write: not keyed, never cancelled, and the outcome is always reported
+    public <T> void run(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(future, task);
+
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(unwrap(error));
+            }
+        }));
+    }
+
+    public void cancel(String key) {
+        CompletableFuture<?> previous = running.remove(key);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+    }
+
+    public void cancelAll() {
+        for (String key : running.keySet()) {
+            cancel(key);
+        }
+    }
+
+    private static <T> void execute(CompletableFuture<T> future, Task<T> task) {
+        try {
+            EXECUTOR.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
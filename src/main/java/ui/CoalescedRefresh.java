@@ -0,0 +1,27 @@
+package ui;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Runs a UI refresh on the JavaFX Application Thread after data changes elsewhere.
+// A burst of changes before the refresh gets to run is folded into one refresh,
+// so a bulk load doesn't flood the FX queue.
+public class CoalescedRefresh implements Runnable {
+    private final Runnable refresh;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public CoalescedRefresh(Runnable refresh) {
+        this.refresh = refresh;
+    }
+
+    @Override
+    public void run() {
+        if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                scheduled.set(false);
+                refresh.run();
+            });
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ui;
+
+import database.DataExporter;
+import javafx.concurrent.Task;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+import java.io.File;
+import java.nio.file.Path;
+
+// Asks where to save an export, then runs it on a background thread with a small
+// progress window. Cancel stops the export and no file is left behind.
+public class ExportProgress {
+
+    public interface Job {
+        long run(Path target, DataExporter.Listener listener) throws Exception;
+    }
+
+    public static void start(Window owner, String title, String defaultName, Job job) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.setInitialFileName(defaultName);
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON lines", "*.jsonl"),
+                new FileChooser.ExtensionFilter("Gzipped CSV", "*.csv.gz"),
+                new FileChooser.ExtensionFilter("Gzipped JSON lines", "*.jsonl.gz"));
+        File chosen = chooser.showSaveDialog(owner);
+        if (chosen == null) {
+            return;
+        }
+
+        // Some platforms don't add the extension of the selected filter
+        if (!chosen.getName().contains(".") && chooser.getSelectedExtensionFilter() != null) {
+            String pattern = chooser.getSelectedExtensionFilter().getExtensions().get(0);
+            chosen = new File(chosen.getParentFile(), chosen.getName() + pattern.substring(1));
+        }
+        File file = chosen;
+
+        Task<Long> task = new Task<Long>() {
+            @Override
+            protected Long call() throws Exception {
+                return job.run(file.toPath(), (written, total) -> {
+                    updateProgress(written, Math.max(total, 1));
+                    updateMessage(written + " of " + total + " rows");
+                    return !isCancelled();
+                });
+            }
+        };
+
+        ProgressBar bar = new ProgressBar();
+        bar.setMaxWidth(Double.MAX_VALUE);
+        bar.progressProperty().bind(task.progressProperty());
+        Label status = new Label();
+        status.textProperty().bind(task.messageProperty());
+        Button cancel = new Button("Cancel");
+        cancel.setOnAction(e -> task.cancel());
+
+        VBox content = new VBox(10, new Label("Exporting to " + file.getName()), bar, status, cancel);
+        content.setStyle("-fx-padding: 20;");
+        Stage stage = new Stage();
+        stage.initOwner(owner);
+        stage.setTitle(title);
+        stage.setScene(new Scene(content, 380, 170));
+        stage.setOnCloseRequest(e -> task.cancel());
+
+        task.setOnSucceeded(e -> {
+            stage.close();
+            showAlert(Alert.AlertType.INFORMATION, title,
+                    "Exported " + task.getValue() + " rows to " + file.getPath());
+        });
+        task.setOnFailed(e -> {
+            stage.close();
+            showAlert(Alert.AlertType.ERROR, title, "Export failed: " + task.getException().getMessage());
+        });
+        task.setOnCancelled(e -> stage.close());
+
+        Thread thread = new Thread(task, "export");
+        thread.setDaemon(true);
+        thread.start();
+        stage.show();
+    }
+
+    private static void showAlert(Alert.AlertType type, String title, String message) {
+        Alert alert = new Alert(type);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
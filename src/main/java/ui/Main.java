@@ -6,16 +6,34 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import system.HealthCareSystem;
+import users.User;
 
 public class Main extends Application {
 
-    private static HealthCareSystem healthcareSystem;
+    // Created on first use, the class loader makes sure only once
+    private static class Holder {
+        static final HealthCareSystem SYSTEM = new HealthCareSystem();
+    }
+
+    // Session of whoever is logged in on this window
+    private static volatile String sessionToken;
 
     public static HealthCareSystem getHealthcareSystem() {
-        if (healthcareSystem == null) {
-            healthcareSystem = new HealthCareSystem();
-        }
-        return healthcareSystem;
+        return Holder.SYSTEM;
+    }
+
+    public static void setSessionToken(String token) {
+        sessionToken = token;
+    }
+
+    // The logged-in user, null when nobody is or the session has expired
+    public static User getCurrentUser() {
+        return getHealthcareSystem().getSessionUser(sessionToken);
+    }
+
+    public static void logout() {
+        getHealthcareSystem().logout(sessionToken);
+        sessionToken = null;
     }
 
     @Override
@@ -0,0 +1,66 @@
+package ui;
+
+import javafx.collections.ObservableListBase;
+
+import java.util.*;
+import java.util.function.Function;
+
+// Read-only table items over a plain source list. Row models are built a page at a time
+// when the TableView asks for them, and only a handful of pages are kept, so the number
+// of live rows follows the viewport rather than the size of the source.
+public class PagedRowList<S, R> extends ObservableListBase<R> {
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PAGES = 8;
+    // Build the next page early once a request gets this close to the end of a page
+    private static final int PREFETCH_MARGIN = 10;
+
+    private final List<S> source;
+    private final Function<S, R> rowFactory;
+    private final Map<Integer, List<R>> pages = new LinkedHashMap<Integer, List<R>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<R>> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    public PagedRowList(List<S> source, Function<S, R> rowFactory) {
+        this.source = source;
+        this.rowFactory = rowFactory;
+    }
+
+    public List<S> getSource() {
+        return Collections.unmodifiableList(source);
+    }
+
+    @Override
+    public R get(int index) {
+        if (index < 0 || index >= source.size()) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + source.size());
+        }
+        int page = index / PAGE_SIZE;
+        int offset = index % PAGE_SIZE;
+        if (offset >= PAGE_SIZE - PREFETCH_MARGIN && (page + 1) * PAGE_SIZE < source.size()) {
+            page(page + 1);
+        }
+        return page(page).get(offset);
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    private List<R> page(int page) {
+        List<R> rows = pages.get(page);
+        if (rows == null) {
+            int from = page * PAGE_SIZE;
+            int to = Math.min(from + PAGE_SIZE, source.size());
+            rows = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                rows.add(rowFactory.apply(source.get(i)));
+            }
+            pages.put(page, rows);
+        }
+        return rows;
+    }
+}
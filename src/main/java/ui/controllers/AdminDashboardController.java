@@ -7,11 +7,18 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import system.DashboardService;
 import system.HealthCareSystem;
+import ui.BackgroundTasks;
+import ui.CoalescedRefresh;
+import ui.ExportProgress;
 import ui.Main;
 import exceptions.DuplicateEmailException;
+import java.io.File;
 import java.net.URL;
+import java.time.LocalDate;
 import java.util.ResourceBundle;
 
 public class AdminDashboardController implements Initializable {
@@ -22,12 +29,31 @@ public class AdminDashboardController implements Initializable {
 
     private HealthCareSystem healthcareSystem;
 
+    // Card values, refreshed from the dashboard service whenever the data changes
+    private final Label doctorsValue = new Label();
+    private final Label patientsValue = new Label();
+    private final Label todayValue = new Label();
+    private final Label pendingValue = new Label();
+    private final Label totalAppointmentsLabel = new Label();
+    private final Runnable dashboardUpdates = new CoalescedRefresh(this::refreshStats);
+    private final BackgroundTasks tasks = new BackgroundTasks();
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         healthcareSystem = Main.getHealthcareSystem();
+        healthcareSystem.getDashboard().subscribe(dashboardUpdates);
         loadDashboardContent();
     }
 
+    private void refreshStats() {
+        DashboardService dashboard = healthcareSystem.getDashboard();
+        doctorsValue.setText(String.valueOf(dashboard.getDoctorCount()));
+        patientsValue.setText(String.valueOf(dashboard.getPatientCount()));
+        todayValue.setText(String.valueOf(dashboard.getTodayAppointments()));
+        pendingValue.setText(String.valueOf(dashboard.getPendingAppointments()));
+        totalAppointmentsLabel.setText("Total Appointments: " + dashboard.getTotalAppointments());
+    }
+
     @FXML
     private void handleDashboard() {
         dashboardTitle.setText("Admin Dashboard");
@@ -51,6 +77,9 @@ public class AdminDashboardController implements Initializable {
 
     @FXML
     private void handleLogout() {
+        healthcareSystem.getDashboard().unsubscribe(dashboardUpdates);
+        Main.logout();
+        tasks.cancelAll();
         try {
             Stage stage = (Stage) contentPane.getScene().getWindow();
             Parent root = FXMLLoader.load(getClass().getResource("/ui/views/Login.fxml"));
@@ -68,11 +97,12 @@ public class AdminDashboardController implements Initializable {
         // Admin stats
         HBox statsSection = new HBox(15);
         statsSection.getChildren().addAll(
-                createStatsCard("👨‍⚕️", "Total Doctors", "15", "#3b82f6"),
-                createStatsCard("👥", "Total Patients", "120", "#10b981"),
-                createStatsCard("📅", "Today's Appointments", "25", "#8b5cf6"),
-                createStatsCard("📊", "System Health", "100%", "#f59e0b")
+                createStatsCard("👨‍⚕️", "Total Doctors", doctorsValue, "#3b82f6"),
+                createStatsCard("👥", "Total Patients", patientsValue, "#10b981"),
+                createStatsCard("📅", "Today's Appointments", todayValue, "#8b5cf6"),
+                createStatsCard("⏳", "Pending Appointments", pendingValue, "#f59e0b")
         );
+        refreshStats();
 
         dashboard.getChildren().add(statsSection);
         contentPane.getChildren().setAll(dashboard);
@@ -82,34 +112,109 @@ public class AdminDashboardController implements Initializable {
         VBox content = new VBox(20);
         content.getStyleClass().add("card");
         content.setStyle("-fx-padding: 20;");
+
+        // Bulk import from a CSV or JSON lines file, the result shows below the buttons
+        Label importResult = new Label();
+        importResult.setWrapText(true);
+        Button importDoctors = new Button("Import Doctors from File");
+        Button importPatients = new Button("Import Patients from File");
+        HBox importButtons = new HBox(10, importDoctors, importPatients);
+        importDoctors.setOnAction(e -> handleImport("doctor", importButtons, importResult));
+        importPatients.setOnAction(e -> handleImport("patient", importButtons, importResult));
+
         content.getChildren().addAll(
                 new Label("Doctor Management"),
                 new TableView<>(),
                 new Button("Edit Doctor"),
-                new Button("Remove Doctor")
+                new Button("Remove Doctor"),
+                new Separator(),
+                new Label("Bulk Import (CSV or JSON lines)"),
+                new Label("Doctors: name, email, password, specialization"),
+                new Label("Patients: name, email, password, medicalHistory (optional)"),
+                importButtons,
+                importResult
         );
         contentPane.getChildren().setAll(content);
     }
 
+    // Runs as a write: an import is never cancelled by a later one, and both report their results
+    private void handleImport(String type, HBox importButtons, Label resultLabel) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import " + type + "s");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV or JSON lines", "*.csv", "*.jsonl", "*.csv.gz", "*.jsonl.gz"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = chooser.showOpenDialog(contentPane.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        importButtons.setDisable(true);
+        resultLabel.setText("Importing " + file.getName() + "...");
+        tasks.run(() -> healthcareSystem.importUsers(type, file.toPath()),
+                result -> {
+                    importButtons.setDisable(false);
+                    StringBuilder text = new StringBuilder(result.summary());
+                    for (String error : result.getErrors()) {
+                        text.append("\n").append(error);
+                    }
+                    resultLabel.setText(text.toString());
+                },
+                error -> {
+                    importButtons.setDisable(false);
+                    resultLabel.setText("Import failed: " + error.getMessage());
+                });
+    }
+
     private void loadViewRecordsContent() {
         VBox content = new VBox(20);
         content.getStyleClass().add("card");
         content.setStyle("-fx-padding: 20;");
+
+        Button reportsButton = new Button("Generate Reports");
+        reportsButton.setOnAction(e -> handleGenerateReports(reportsButton));
+
         content.getChildren().addAll(
                 new Label("System Records"),
-                new Label("Total Appointments: 150"),
+                totalAppointmentsLabel,
                 new Label("Total Revenue: $0.00"),
                 new Label("System Uptime: 99.9%"),
                 new Separator(),
+                new Label("Reports:"),
+                reportsButton,
+                new Separator(),
                 new Label("Export Options:"),
-                new Button("Export Patients"),
-                new Button("Export Doctors"),
-                new Button("Export Appointments")
+                createExportButton("Export Patients", "patients"),
+                createExportButton("Export Doctors", "doctors"),
+                createExportButton("Export Appointments", "appointments")
         );
+        refreshStats();
         contentPane.getChildren().setAll(content);
     }
 
-    private VBox createStatsCard(String icon, String label, String value, String color) {
+    private Button createExportButton(String text, String table) {
+        Button button = new Button(text);
+        button.setOnAction(e -> ExportProgress.start(contentPane.getScene().getWindow(), text,
+                table + ".csv", (target, listener) -> healthcareSystem.exportTable(table, target, listener)));
+        return button;
+    }
+
+    // Today's daily, weekly and monthly report files, written off the UI thread
+    private void handleGenerateReports(Button button) {
+        button.setDisable(true);
+        tasks.submit("reports", () -> healthcareSystem.generateReports(LocalDate.now()),
+                files -> {
+                    button.setDisable(false);
+                    showAlert("Reports", files.size() + " report files written to "
+                            + files.get(0).getParent(), Alert.AlertType.INFORMATION);
+                },
+                error -> {
+                    button.setDisable(false);
+                    showAlert("Error", "Failed to generate reports: " + error.getMessage(), Alert.AlertType.ERROR);
+                });
+    }
+
+    private VBox createStatsCard(String icon, String label, Label valueLabel, String color) {
         VBox card = new VBox(10);
         card.getStyleClass().add("stats-card");
         card.setStyle("-fx-background-color: " + color + "20; -fx-padding: 15;");
@@ -118,7 +223,6 @@ public class AdminDashboardController implements Initializable {
         Label iconLabel = new Label(icon);
         iconLabel.setStyle("-fx-font-size: 24px;");
 
-        Label valueLabel = new Label(value);
         valueLabel.setStyle("-fx-font-size: 28px; -fx-font-weight: bold;");
 
         topRow.getChildren().addAll(iconLabel, valueLabel);
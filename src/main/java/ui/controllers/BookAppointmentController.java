@@ -1,5 +1,6 @@
 package ui.controllers;
 
+import javafx.animation.PauseTransition;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
@@ -9,13 +10,17 @@ import javafx.collections.ObservableList;
 import javafx.scene.layout.VBox;
 import system.HealthCareSystem;
 import ui.Main;
+import ui.BackgroundTasks;
 import exceptions.SlotFullException;
 import exceptions.InvalidDateException;
+import exceptions.AppointmentSaveException;
 import users.Doctor;
 import users.Patient;
+import users.User;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.scene.layout.HBox;
+import javafx.util.Duration;
 
 import java.net.URL;
 import java.time.LocalDate;
@@ -31,6 +36,7 @@ public class BookAppointmentController implements Initializable {
     @FXML private Label errorLabel;
     @FXML private Label successLabel;
     @FXML private TableView<DoctorTableRow> doctorsTable;
+    @FXML private Button bookButton;
     @FXML private RadioButton timeSlot9AM;
     @FXML private RadioButton timeSlot11AM;
     @FXML private RadioButton timeSlot2PM;
@@ -44,19 +50,15 @@ public class BookAppointmentController implements Initializable {
     private HealthCareSystem healthcareSystem;
     private ObservableList<DoctorTableRow> doctorTableData;
     private ToggleGroup timeSlotGroup;
+    private final BackgroundTasks tasks = new BackgroundTasks();
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(250));
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         healthcareSystem = Main.getHealthcareSystem();
 
-        // Initialize specialization combo box
-        specializationComboBox.getItems().addAll(
-                "General Physician",
-                "Dentist",
-                "Dermatologist",
-                "Cardiologist",
-                "Pediatrician"
-        );
+        // Specializations of the doctors on record, from the specialization index
+        specializationComboBox.getItems().addAll(healthcareSystem.getSpecializations());
         specializationComboBox.getSelectionModel().selectFirst();
 
         // Initialize date picker
@@ -79,6 +81,10 @@ public class BookAppointmentController implements Initializable {
         // Initialize doctor table
         initializeDoctorsTable();
         loadDoctors();
+
+        // Search as the user types, once typing pauses
+        searchDelay.setOnFinished(e -> handleSearch());
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
     }
 
     private void initializeDoctorsTable() {
@@ -87,50 +93,45 @@ public class BookAppointmentController implements Initializable {
     }
 
     private void loadDoctors() {
-        doctorTableData.clear();
-        List<Doctor> doctors = healthcareSystem.getAllDoctors();
+        showDoctors(() -> healthcareSystem.getAllDoctors());
+    }
 
-        for (Doctor doctor : doctors) {
-            DoctorTableRow row = new DoctorTableRow(doctor);
-            doctorTableData.add(row);
-        }
+    // All doctor lists share one key, so a newer search or filter cancels an older one
+    private void showDoctors(BackgroundTasks.Task<List<Doctor>> query) {
+        tasks.submit("doctors", query, doctors -> {
+            doctorTableData.clear();
+
+            for (Doctor doctor : doctors) {
+                DoctorTableRow row = new DoctorTableRow(doctor);
+                doctorTableData.add(row);
+            }
+        }, e -> showError("Failed to load doctors: " + e.getMessage()));
     }
 
     @FXML
     private void handleSearch() {
-        String searchText = searchField.getText().trim().toLowerCase();
+        searchDelay.stop();
+        String searchText = searchField.getText().trim();
         if (searchText.isEmpty()) {
             loadDoctors();
             return;
         }
 
-        doctorTableData.clear();
-        List<Doctor> doctors = healthcareSystem.getAllDoctors();
-
-        for (Doctor doctor : doctors) {
-            if (doctor.getName().toLowerCase().contains(searchText) ||
-                    doctor.getSpecialization().toLowerCase().contains(searchText) ||
-                    doctor.getEmail().toLowerCase().contains(searchText)) {
-                DoctorTableRow row = new DoctorTableRow(doctor);
-                doctorTableData.add(row);
-            }
-        }
+        showDoctors(() -> healthcareSystem.searchDoctorsByText(searchText));
     }
 
     @FXML
     private void handleSpecializationChange() {
         String specialization = specializationComboBox.getValue();
+        LocalDate date = datePicker.getValue();
 
         if (specialization == null || specialization.isEmpty()) {
             loadDoctors();
+        } else if (date == null) {
+            showDoctors(() -> healthcareSystem.searchDoctor(specialization));
         } else {
-            List<Doctor> filteredDoctors = healthcareSystem.searchDoctor(specialization);
-            doctorTableData.clear();
-
-            for (Doctor doctor : filteredDoctors) {
-                DoctorTableRow row = new DoctorTableRow(doctor);
-                doctorTableData.add(row);
-            }
+            // Only doctors with a free slot on the picked date
+            showDoctors(() -> healthcareSystem.searchDoctor(specialization, date.toString()));
         }
     }
 
@@ -151,10 +152,15 @@ public class BookAppointmentController implements Initializable {
             return;
         }
 
-        availabilityLabel.setText("Availability check for " +
-                selectedDate.format(DateTimeFormatter.ofPattern("MMM dd, yyyy")) +
-                ": Most slots available");
-        availabilityLabel.setStyle("-fx-text-fill: #4CAF50; -fx-font-weight: bold;");
+        List<String> freeSlots = healthcareSystem.getFreeSlots(selectedDoctor, selectedDate);
+        String day = selectedDate.format(DateTimeFormatter.ofPattern("MMM dd, yyyy"));
+        if (freeSlots.isEmpty()) {
+            availabilityLabel.setText("No free slots on " + day);
+            availabilityLabel.setStyle("-fx-text-fill: #f44336; -fx-font-weight: bold;");
+        } else {
+            availabilityLabel.setText("Free on " + day + ": " + String.join(", ", freeSlots));
+            availabilityLabel.setStyle("-fx-text-fill: #4CAF50; -fx-font-weight: bold;");
+        }
     }
 
     @FXML
@@ -190,16 +196,19 @@ public class BookAppointmentController implements Initializable {
 
         String timeSlot = selectedTimeSlot.getUserData().toString();
 
-        try {
-            // For demo, use first patient
-            List<Patient> patients = healthcareSystem.getAllPatients();
-            if (patients.isEmpty()) {
-                showError("No patient found. Please register first.");
-                return;
-            }
+        // Book for whoever is logged in
+        User user = Main.getCurrentUser();
+        if (!(user instanceof Patient)) {
+            showError("Your session has expired. Please log in again as a patient.");
+            return;
+        }
 
-            Patient patient = patients.get(0);
+        Patient patient = (Patient) user;
 
+        // The booking waits for the log commit, keep it off the FX thread. A write can't be
+        // superseded like a search, so no second booking starts until this one has answered.
+        bookButton.setDisable(true);
+        tasks.run(() -> {
             healthcareSystem.bookAppointment(
                     patient,
                     selectedDoctor,
@@ -207,17 +216,23 @@ public class BookAppointmentController implements Initializable {
                     timeSlot,
                     condition
             );
-
-            showSuccess("Appointment booked successfully!");
+            return true;
+        }, booked -> {
+            bookButton.setDisable(false);
             clearForm();
-
-        } catch (SlotFullException e) {
-            showError("Selected time slot is not available. Please choose another slot.");
-        } catch (InvalidDateException e) {
-            showError("Invalid date selected. Please choose a valid date.");
-        } catch (Exception e) {
-            showError("Failed to book appointment: " + e.getMessage());
-        }
+            showSuccess("Appointment booked successfully!");
+        }, e -> {
+            bookButton.setDisable(false);
+            if (e instanceof SlotFullException) {
+                showError("Selected time slot is not available. Please choose another slot.");
+            } else if (e instanceof InvalidDateException) {
+                showError("Invalid date selected. Please choose a valid date.");
+            } else if (e instanceof AppointmentSaveException) {
+                showError("The appointment could not be saved. Please try again.");
+            } else {
+                showError("Failed to book appointment: " + e.getMessage());
+            }
+        });
     }
 
     @FXML
@@ -8,8 +8,12 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import system.DashboardService;
 import system.HealthCareSystem;
+import ui.CoalescedRefresh;
 import ui.Main;
+import users.Doctor;
+import users.User;
 import java.net.URL;
 import java.util.ResourceBundle;
 
@@ -21,12 +25,36 @@ public class DoctorDashboardController implements Initializable {
 
     private HealthCareSystem healthcareSystem;
 
+    // Card values, refreshed from the dashboard service whenever the data changes
+    private final Label todayValue = new Label();
+    private final Label freeSlotsValue = new Label();
+    private final Label patientsValue = new Label();
+    private final Label pendingValue = new Label();
+    private final Runnable dashboardUpdates = new CoalescedRefresh(this::refreshStats);
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         healthcareSystem = Main.getHealthcareSystem();
+        healthcareSystem.getDashboard().subscribe(dashboardUpdates);
         loadDashboardContent();
     }
 
+    private void refreshStats() {
+        User user = Main.getCurrentUser();
+        if (!(user instanceof Doctor)) {
+            for (Label value : new Label[]{todayValue, freeSlotsValue, patientsValue, pendingValue}) {
+                value.setText("-");
+            }
+            return;
+        }
+        Doctor doctor = (Doctor) user;
+        DashboardService dashboard = healthcareSystem.getDashboard();
+        todayValue.setText(String.valueOf(dashboard.getTodayAppointments(doctor)));
+        freeSlotsValue.setText(String.valueOf(dashboard.getFreeSlotsToday(doctor)));
+        patientsValue.setText(String.valueOf(dashboard.getPatientCount(doctor)));
+        pendingValue.setText(String.valueOf(dashboard.getPendingAppointments(doctor)));
+    }
+
     @FXML
     private void handleDashboard() {
         dashboardTitle.setText("Doctor Dashboard");
@@ -57,6 +85,8 @@ public class DoctorDashboardController implements Initializable {
 
     @FXML
     private void handleLogout() {
+        healthcareSystem.getDashboard().unsubscribe(dashboardUpdates);
+        Main.logout();
         try {
             Stage stage = (Stage) contentPane.getScene().getWindow();
             Parent root = FXMLLoader.load(getClass().getResource("/ui/views/Login.fxml"));
@@ -74,11 +104,12 @@ public class DoctorDashboardController implements Initializable {
         // Stats cards for doctor
         HBox statsSection = new HBox(15);
         statsSection.getChildren().addAll(
-                createStatsCard("📅", "Today's Appointments", "8", "#3b82f6"),
-                createStatsCard("⏰", "Available Slots", "12", "#10b981"),
-                createStatsCard("👥", "Total Patients", "45", "#8b5cf6"),
-                createStatsCard("⭐", "Rating", "4.8", "#f59e0b")
+                createStatsCard("📅", "Today's Appointments", todayValue, "#3b82f6"),
+                createStatsCard("⏰", "Available Slots Today", freeSlotsValue, "#10b981"),
+                createStatsCard("👥", "Total Patients", patientsValue, "#8b5cf6"),
+                createStatsCard("⏳", "Pending", pendingValue, "#f59e0b")
         );
+        refreshStats();
 
         dashboard.getChildren().add(statsSection);
         contentPane.getChildren().setAll(dashboard);
@@ -120,7 +151,7 @@ public class DoctorDashboardController implements Initializable {
         contentPane.getChildren().setAll(appointments);
     }
 
-    private VBox createStatsCard(String icon, String label, String value, String color) {
+    private VBox createStatsCard(String icon, String label, Label valueLabel, String color) {
         VBox card = new VBox(10);
         card.getStyleClass().add("stats-card");
         card.setStyle("-fx-background-color: " + color + "20; -fx-padding: 15;");
@@ -129,7 +160,6 @@ public class DoctorDashboardController implements Initializable {
         Label iconLabel = new Label(icon);
         iconLabel.setStyle("-fx-font-size: 24px;");
 
-        Label valueLabel = new Label(value);
         valueLabel.setStyle("-fx-font-size: 28px; -fx-font-weight: bold;");
 
         topRow.getChildren().addAll(iconLabel, valueLabel);
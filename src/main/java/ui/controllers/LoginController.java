@@ -9,7 +9,6 @@ import javafx.stage.Stage;
 import system.HealthCareSystem;
 import ui.Main;
 import exceptions.*;
-import users.User;
 
 import java.io.IOException;
 
@@ -41,7 +40,7 @@ public class LoginController {
         }
 
         try {
-            User user = healthcareSystem.loginUser(email, password, userType.toLowerCase());
+            Main.setSessionToken(healthcareSystem.login(email, password, userType.toLowerCase()).getToken());
 
             // Navigate to appropriate dashboard
             String fxmlPath = "";
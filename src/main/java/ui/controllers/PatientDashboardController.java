@@ -9,7 +9,9 @@ import javafx.scene.chart.PieChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import system.DashboardService;
 import system.HealthCareSystem;
+import ui.CoalescedRefresh;
 import ui.Main;
 import appointments.Appointment;
 import users.Patient;
@@ -17,6 +19,7 @@ import users.User;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -32,13 +35,44 @@ public class PatientDashboardController implements Initializable {
     private HealthCareSystem healthcareSystem;
     private User currentUser;
 
+    // Card values and chart, refreshed from the dashboard service whenever the data changes
+    private final Label totalValue = new Label();
+    private final Label upcomingValue = new Label();
+    private final Label doctorsValue = new Label();
+    private final Label pendingValue = new Label();
+    private final PieChart appointmentChart = new PieChart();
+    private final Runnable dashboardUpdates = new CoalescedRefresh(this::refreshStats);
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         healthcareSystem = Main.getHealthcareSystem();
-        // In real app, you would get current user from session
+        currentUser = Main.getCurrentUser();
+        healthcareSystem.getDashboard().subscribe(dashboardUpdates);
         loadDashboardContent();
     }
 
+    private void refreshStats() {
+        if (!(currentUser instanceof Patient)) {
+            for (Label value : new Label[]{totalValue, upcomingValue, doctorsValue, pendingValue}) {
+                value.setText("-");
+            }
+            appointmentChart.getData().clear();
+            return;
+        }
+        Patient patient = (Patient) currentUser;
+        DashboardService dashboard = healthcareSystem.getDashboard();
+        totalValue.setText(String.valueOf(dashboard.getTotalAppointments(patient)));
+        upcomingValue.setText(String.valueOf(dashboard.getUpcomingAppointments(patient)));
+        doctorsValue.setText(String.valueOf(dashboard.getDoctorCount(patient)));
+        pendingValue.setText(String.valueOf(dashboard.getPendingAppointments(patient)));
+
+        List<PieChart.Data> slices = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : dashboard.getStatusCounts(patient).entrySet()) {
+            slices.add(new PieChart.Data(entry.getKey(), entry.getValue()));
+        }
+        appointmentChart.getData().setAll(slices);
+    }
+
     private void loadDashboardContent() {
         try {
             VBox dashboardContent = new VBox(24);
@@ -50,10 +84,10 @@ public class PatientDashboardController implements Initializable {
 
             // Stats Cards
             statsSection.getChildren().addAll(
-                    createStatsCard("📅", "Total Appointments", "12", "#3b82f6"),
-                    createStatsCard("⏰", "Upcoming", "3", "#10b981"),
-                    createStatsCard("👨‍⚕️", "Doctors", "5", "#8b5cf6"),
-                    createStatsCard("📋", "Pending", "2", "#f59e0b")
+                    createStatsCard("📅", "Total Appointments", totalValue, "#3b82f6"),
+                    createStatsCard("⏰", "Upcoming", upcomingValue, "#10b981"),
+                    createStatsCard("👨‍⚕️", "Doctors", doctorsValue, "#8b5cf6"),
+                    createStatsCard("📋", "Pending", pendingValue, "#f59e0b")
             );
 
             // Quick Actions
@@ -116,16 +150,9 @@ public class PatientDashboardController implements Initializable {
             Label chartTitle = new Label("Appointment Overview");
             chartTitle.getStyleClass().add("card-title");
 
-            PieChart appointmentChart = new PieChart();
             appointmentChart.setPrefHeight(300);
             appointmentChart.setLegendVisible(false);
-
-            // Sample data
-            PieChart.Data pendingData = new PieChart.Data("Pending", 25);
-            PieChart.Data confirmedData = new PieChart.Data("Confirmed", 50);
-            PieChart.Data cancelledData = new PieChart.Data("Cancelled", 25);
-
-            appointmentChart.getData().addAll(pendingData, confirmedData, cancelledData);
+            refreshStats();
 
             chartSection.getChildren().addAll(chartTitle, appointmentChart);
 
@@ -145,7 +172,7 @@ public class PatientDashboardController implements Initializable {
         }
     }
 
-    private HBox createStatsCard(String icon, String label, String value, String color) {
+    private HBox createStatsCard(String icon, String label, Label valueLabel, String color) {
         HBox card = new HBox(16);
         card.getStyleClass().add("stats-card");
         card.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
@@ -156,7 +183,6 @@ public class PatientDashboardController implements Initializable {
 
         // Text
         VBox textBox = new VBox(4);
-        Label valueLabel = new Label(value);
         valueLabel.setStyle("-fx-font-size: 24px; -fx-font-weight: bold; -fx-text-fill: " + color + ";");
 
         Label labelLabel = new Label(label);
@@ -243,6 +269,8 @@ public class PatientDashboardController implements Initializable {
 
     @FXML
     private void handleLogout() {
+        healthcareSystem.getDashboard().unsubscribe(dashboardUpdates);
+        Main.logout();
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/ui/views/Login.fxml"));
             Parent root = loader.load();
@@ -4,18 +4,23 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.scene.layout.HBox;
 import system.HealthCareSystem;
 import ui.Main;
+import ui.BackgroundTasks;
+import ui.ExportProgress;
+import ui.PagedRowList;
 import appointments.Appointment;
+import appointments.AppointmentQuery;
+import appointments.AppointmentRepository;
+import appointments.AppointmentStatistics;
 import users.Doctor;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
 import java.net.URL;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
 
@@ -30,20 +35,51 @@ public class ViewAppointmentsController implements Initializable {
     @FXML private Label cancelledLabel;
 
     private HealthCareSystem healthcareSystem;
-    private ObservableList<AppointmentTableRow> appointmentsData;
+    // Row models are only built for the pages the table actually shows
+    private PagedRowList<Appointment, AppointmentTableRow> appointmentsData;
+    private PagedRowList<Appointment, AppointmentTableRow> shownData;
+    // Status counts of the filtered rows, null while all appointments are shown
+    private FilterResult filtered;
+    private final BackgroundTasks tasks = new BackgroundTasks();
+
+    // A filter's matches with their status counts, both taken on the worker thread
+    private static class FilterResult {
+        final List<Appointment> appointments;
+        long pending;
+        long confirmed;
+        long cancelled;
+
+        FilterResult(List<Appointment> appointments) {
+            this.appointments = appointments;
+            for (Appointment appointment : appointments) {
+                count(appointment.getStatus(), 1);
+            }
+        }
+
+        void count(String status, long delta) {
+            switch (status.toLowerCase()) {
+                case "pending": pending += delta; break;
+                case "confirmed": confirmed += delta; break;
+                case "cancelled": cancelled += delta; break;
+            }
+        }
+    }
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         healthcareSystem = Main.getHealthcareSystem();
-        appointmentsData = FXCollections.observableArrayList();
-        appointmentsTable.setItems(appointmentsData);
+        showAll(new ArrayList<>());
+
+        // Items are read-only pages, sorting would need a sorted source instead
+        for (TableColumn<AppointmentTableRow, ?> column : appointmentsTable.getColumns()) {
+            column.setSortable(false);
+        }
 
         // Initialize status filter
         statusFilter.getItems().addAll("All", "Pending", "Confirmed", "Cancelled");
         statusFilter.getSelectionModel().selectFirst();
 
         loadAppointments();
-        updateStatistics();
 
         // Set up status column cell factory for styling
         setupStatusColumn();
@@ -84,18 +120,35 @@ public class ViewAppointmentsController implements Initializable {
         });
     }
 
+    // Reads the store on a worker thread, rows are built once the result is back on the FX thread
     private void loadAppointments() {
-        appointmentsData.clear();
+        tasks.submit("appointments", () -> AppointmentRepository.getInstance().findAll(),
+                appointments -> {
+                    // For demo purposes, we'll show all appointments
+                    // In real system, filter by current patient
+                    showAll(appointments);
+                    updateStatistics();
+                },
+                this::showLoadError);
+    }
 
-        // Get all appointments from system
-        List<Appointment> appointments = Appointment.loadAppointmentsFromFile();
+    private void showAll(List<Appointment> appointments) {
+        appointmentsData = new PagedRowList<>(appointments, AppointmentTableRow::new);
+        filtered = null;
+        show(appointmentsData);
+    }
 
-        // For demo purposes, we'll show all appointments
-        // In real system, filter by current patient
-        for (Appointment appointment : appointments) {
-            AppointmentTableRow row = new AppointmentTableRow(appointment);
-            appointmentsData.add(row);
-        }
+    private void show(PagedRowList<Appointment, AppointmentTableRow> rows) {
+        shownData = rows;
+        appointmentsTable.setItems(rows);
+    }
+
+    private void showLoadError(Throwable error) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Load Failed");
+        alert.setHeaderText(null);
+        alert.setContentText("Could not load appointments: " + error.getMessage());
+        alert.showAndWait();
     }
 
     @FXML
@@ -103,34 +156,24 @@ public class ViewAppointmentsController implements Initializable {
         String status = statusFilter.getValue();
         LocalDate date = dateFilter.getValue();
 
-        if (status == null || "All".equals(status)) {
+        if ((status == null || "All".equals(status)) && date == null) {
             loadAppointments();
             return;
         }
 
-        // Filter by status
-        ObservableList<AppointmentTableRow> filteredData = FXCollections.observableArrayList();
-        for (AppointmentTableRow row : appointmentsData) {
-            boolean matchesStatus = row.getStatus().equalsIgnoreCase(status);
-            boolean matchesDate = true;
-
-            // If date filter is set, check date
-            if (date != null) {
-                try {
-                    LocalDate rowDate = LocalDate.parse(row.getDate());
-                    matchesDate = rowDate.equals(date);
-                } catch (Exception e) {
-                    matchesDate = false;
-                }
-            }
-
-            if (matchesStatus && matchesDate) {
-                filteredData.add(row);
-            }
+        // The repository answers from its indexes on a worker thread,
+        // a filter replaces whatever load is still running
+        AppointmentQuery query = new AppointmentQuery().onDate(date);
+        if (status != null && !"All".equals(status)) {
+            query.withStatus(status);
         }
-
-        appointmentsTable.setItems(filteredData);
-        updateStatistics();
+        tasks.submit("appointments", () -> new FilterResult(AppointmentRepository.getInstance().query(query)),
+                result -> {
+                    filtered = result;
+                    show(new PagedRowList<>(result.appointments, AppointmentTableRow::new));
+                    updateStatistics();
+                },
+                this::showLoadError);
     }
 
     @FXML
@@ -138,13 +181,11 @@ public class ViewAppointmentsController implements Initializable {
         statusFilter.getSelectionModel().selectFirst();
         dateFilter.setValue(null);
         loadAppointments();
-        updateStatistics();
     }
 
     @FXML
     private void handleRefresh() {
         loadAppointments();
-        updateStatistics();
     }
 
     @FXML
@@ -168,41 +209,69 @@ public class ViewAppointmentsController implements Initializable {
                 "Doctor: " + selectedRow.getDoctor());
 
         if (confirmAlert.showAndWait().get() == ButtonType.OK) {
-            // Update appointment status to cancelled
-            selectedRow.setStatus("Cancelled");
-            appointmentsTable.refresh();
+            cancelAppointment(selectedRow);
+        }
+    }
+
+    // Persist the cancellation off the FX thread, it waits for the log commit, then update the row
+    private void cancelAppointment(AppointmentTableRow row) {
+        FilterResult counts = filtered;
+        tasks.run(() -> {
+            healthcareSystem.cancelAppointment(row.getAppointmentId());
+            return true;
+        }, cancelled -> {
+            if (counts != null) {
+                counts.count(row.getStatus(), -1);
+                counts.count("Cancelled", 1);
+            }
+            row.setStatus("Cancelled");
             updateStatistics();
+            appointmentsTable.refresh();
 
             Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
             successAlert.setTitle("Cancelled");
             successAlert.setHeaderText(null);
             successAlert.setContentText("Appointment cancelled successfully.");
             successAlert.showAndWait();
-        }
+        }, e -> {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Cannot Cancel");
+            alert.setHeaderText(null);
+            alert.setContentText(e.getMessage());
+            alert.showAndWait();
+        });
     }
 
     @FXML
+    // Exports the appointments currently shown, all of them or the filtered ones
     private void handleExport() {
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Export Feature");
-        alert.setHeaderText("Export Appointments");
-        alert.setContentText("This feature would export appointments to PDF/Excel format.");
-        alert.showAndWait();
+        List<Appointment> shown = shownData.getSource();
+        boolean all = shownData == appointmentsData;
+        ExportProgress.start(appointmentsTable.getScene().getWindow(), "Export Appointments",
+                "appointments.csv", (target, listener) -> all
+                        ? healthcareSystem.exportTable("appointments", target, listener)
+                        : healthcareSystem.exportAppointments(shown, target, listener));
     }
 
     private void updateStatistics() {
-        ObservableList<AppointmentTableRow> currentData = appointmentsTable.getItems();
-        int total = currentData.size();
-        int pending = 0;
-        int confirmed = 0;
-        int cancelled = 0;
-
-        for (AppointmentTableRow row : currentData) {
-            switch (row.getStatus().toLowerCase()) {
-                case "pending": pending++; break;
-                case "confirmed": confirmed++; break;
-                case "cancelled": cancelled++; break;
-            }
+        long total;
+        long pending;
+        long confirmed;
+        long cancelled;
+
+        if (filtered == null) {
+            // Unfiltered view, read the live counters instead of walking the rows
+            AppointmentStatistics stats = healthcareSystem.getStatistics();
+            total = stats.getTotal();
+            pending = stats.getStatusCount("Pending");
+            confirmed = stats.getStatusCount("Confirmed");
+            cancelled = stats.getStatusCount("Cancelled");
+        } else {
+            // Counted with the query, walking the rows here would read every one on the FX thread
+            total = filtered.appointments.size();
+            pending = filtered.pending;
+            confirmed = filtered.confirmed;
+            cancelled = filtered.cancelled;
         }
 
         totalLabel.setText(String.valueOf(total));
@@ -213,6 +282,7 @@ public class ViewAppointmentsController implements Initializable {
 
     // Inner class for appointment table rows
     public class AppointmentTableRow {
+        private final String appointmentId;
         private final SimpleStringProperty date;
         private final SimpleStringProperty time;
         private final SimpleStringProperty doctor;
@@ -222,20 +292,20 @@ public class ViewAppointmentsController implements Initializable {
         private final SimpleObjectProperty<HBox> actions;
 
         public AppointmentTableRow(Appointment appointment) {
+            this.appointmentId = appointment.getAppointmentId();
             this.date = new SimpleStringProperty(appointment.getDate());
             this.time = new SimpleStringProperty(appointment.getTimeSlot());
             this.condition = new SimpleStringProperty(appointment.getDisease());
             this.status = new SimpleStringProperty(appointment.getStatus());
 
-            // Get doctor info (in real system, fetch from database)
-            // For now, use placeholder
-            List<Doctor> doctors = healthcareSystem.getAllDoctors();
-            if (!doctors.isEmpty()) {
-                this.doctor = new SimpleStringProperty(doctors.get(0).getName());
-                this.specialization = new SimpleStringProperty(doctors.get(0).getSpecialization());
+            // Doctor info by id from the doctor directory
+            Doctor bookedDoctor = healthcareSystem.findDoctor(appointment.getDoctorId());
+            if (bookedDoctor != null) {
+                this.doctor = new SimpleStringProperty(bookedDoctor.getName());
+                this.specialization = new SimpleStringProperty(bookedDoctor.getSpecialization());
             } else {
-                this.doctor = new SimpleStringProperty("Dr. Smith");
-                this.specialization = new SimpleStringProperty("General Physician");
+                this.doctor = new SimpleStringProperty(appointment.getDoctorId());
+                this.specialization = new SimpleStringProperty("Unknown");
             }
 
             // Create action buttons
@@ -247,11 +317,7 @@ public class ViewAppointmentsController implements Initializable {
 
             Button cancelBtn = new Button("Cancel");
             cancelBtn.setStyle("-fx-background-color: #f44336; -fx-text-fill: white; -fx-font-size: 12px; -fx-padding: 5 10;");
-            cancelBtn.setOnAction(e -> {
-                this.status.set("Cancelled");
-                // In real system, update in database
-                updateStatistics();
-            });
+            cancelBtn.setOnAction(e -> cancelAppointment(this));
 
             actionBox.getChildren().addAll(viewBtn, cancelBtn);
             this.actions = new SimpleObjectProperty<>(actionBox);
@@ -271,6 +337,7 @@ public class ViewAppointmentsController implements Initializable {
         }
 
         // Getters
+        public String getAppointmentId() { return appointmentId; }
         public String getDate() { return date.get(); }
         public String getTime() { return time.get(); }
         public String getDoctor() { return doctor.get(); }
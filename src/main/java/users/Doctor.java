@@ -2,19 +2,39 @@ package users;
 
 import interfaces.ReportGenerator;
 import appointments.Appointment;
+import appointments.AppointmentRepository;
+import appointments.AppointmentStatistics;
+import appointments.AvailabilityEngine;
+import database.IdGenerator;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 public class Doctor extends User implements ReportGenerator {
     private String specialization;
-    private boolean[][] schedule; // 7 days x 5 time slots (9AM, 11AM, 2PM, 4PM, 6PM)
 
     public Doctor(String name, String email, String password, String specialization) {
-        this.id = "D" + System.currentTimeMillis();
+        this.id = IdGenerator.nextId("D");
         this.name = name;
         this.email = email;
         this.password = password;
         this.specialization = specialization;
-        this.schedule = new boolean[7][5]; // All slots initially available (false)
+    }
+
+    // A doctor that already has an id, so none is generated
+    public Doctor(String id, String name, String email, String password, String specialization) {
+        super(id, name, email, password);
+        this.specialization = specialization;
+    }
+
+    // Doctor from a stored user record: id, name, email, password, specialization.
+    // Null when the record is too short.
+    public static Doctor fromRecord(String[] record) {
+        if (record.length < 5) {
+            return null;
+        }
+        return new Doctor(record[0], record[1], record[2], record[3], record[4]);
     }
 
     // Getters and Setters
@@ -23,7 +43,9 @@ public class Doctor extends User implements ReportGenerator {
         this.specialization = specialization;
     }
 
-    public boolean[][] getSchedule() { return schedule; }
+    // 7 days (Monday first) x 5 time slots (9AM, 11AM, 2PM, 4PM, 6PM), true = not available.
+    // Kept by the availability engine so it is saved and used when searching.
+    public boolean[][] getSchedule() { return availability().getWeek(id); }
 
     // Methods
     @Override
@@ -38,7 +60,7 @@ public class Doctor extends User implements ReportGenerator {
 
     public void updateAvailability(int day, int timeSlot, boolean isAvailable) {
         if (day >= 0 && day < 7 && timeSlot >= 0 && timeSlot < 5) {
-            schedule[day][timeSlot] = isAvailable;
+            availability().setWorking(id, day, timeSlot, isAvailable);
             System.out.println("Schedule updated for day " + day + ", slot " + timeSlot);
         } else {
             System.out.println("Invalid day or time slot!");
@@ -47,35 +69,54 @@ public class Doctor extends User implements ReportGenerator {
 
     public boolean isSlotAvailable(int day, int timeSlot) {
         if (day >= 0 && day < 7 && timeSlot >= 0 && timeSlot < 5) {
-            return !schedule[day][timeSlot]; // true if available (false in array means available)
+            return availability().isWorking(id, day, timeSlot);
         }
         return false;
     }
 
     public List<Appointment> viewAppointments() {
-        List<Appointment> appointments = Appointment.loadAppointmentsFromFile();
-        List<Appointment> doctorAppointments = new ArrayList<>();
+        return AppointmentRepository.getInstance().findByDoctor(this.id);
+    }
 
-        for (Appointment app : appointments) {
-            if (app.getDoctorId().equals(this.id)) {
-                doctorAppointments.add(app);
-            }
+    @Override
+    public String generateDailyReport(String date) {
+        long count = AppointmentRepository.getInstance().getStatistics().getDoctorDayCount(id, date);
+
+        return "Daily Report for " + date + ":\n" +
+                "Doctor: " + name + "\n" +
+                "Specialization: " + specialization + "\n" +
+                "Total Appointments: " + count + "\n";
+    }
+
+    @Override
+    public String generateWeeklyReport(String date) {
+        try {
+            LocalDate monday = LocalDate.parse(date).with(DayOfWeek.MONDAY);
+            return periodReport("Weekly", monday, monday.plusDays(6));
+        } catch (DateTimeParseException e) {
+            return "Invalid date: " + date + "\n";
         }
-        return doctorAppointments;
     }
 
     @Override
-    public String generateDailyReport(String date) {
-        List<Appointment> appointments = viewAppointments();
-        int count = 0;
+    public String generateMonthlyReport(String date) {
+        try {
+            LocalDate first = LocalDate.parse(date).withDayOfMonth(1);
+            return periodReport("Monthly", first, first.plusMonths(1).minusDays(1));
+        } catch (DateTimeParseException e) {
+            return "Invalid date: " + date + "\n";
+        }
+    }
 
-        for (Appointment app : appointments) {
-            if (app.getDate().equals(date)) {
-                count++;
-            }
+    // Sums the per-day counters, one lookup per day of the period
+    private String periodReport(String kind, LocalDate from, LocalDate to) {
+        AppointmentStatistics statistics = AppointmentRepository.getInstance().getStatistics();
+        long count = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            count += statistics.getDoctorDayCount(id, day.toString());
         }
 
-        return "Daily Report for " + date + ":\n" +
+        return kind + " Report for " + from + " to " + to + ":\n" +
                 "Doctor: " + name + "\n" +
                 "Specialization: " + specialization + "\n" +
                 "Total Appointments: " + count + "\n";
@@ -84,22 +125,37 @@ public class Doctor extends User implements ReportGenerator {
     // Method overloading for search
     public static List<Doctor> searchDoctor(List<Doctor> doctors, String specialization) {
         List<Doctor> result = new ArrayList<>();
+        String key = SpecializationIndex.fold(specialization);
         for (Doctor doc : doctors) {
-            if (doc.getSpecialization().equalsIgnoreCase(specialization)) {
+            if (SpecializationIndex.fold(doc.getSpecialization()).equals(key)) {
                 result.add(doc);
             }
         }
         return result;
     }
 
+    // Doctors of the specialization with at least one free slot on the date
     public static List<Doctor> searchDoctor(List<Doctor> doctors, String specialization, String date) {
         List<Doctor> result = new ArrayList<>();
-        // Simplified implementation - in real system would check schedule
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return result;
+        }
+
+        AvailabilityEngine availability = availability();
+        String key = SpecializationIndex.fold(specialization);
         for (Doctor doc : doctors) {
-            if (doc.getSpecialization().equalsIgnoreCase(specialization)) {
+            if (SpecializationIndex.fold(doc.getSpecialization()).equals(key)
+                    && availability.hasFreeSlot(doc.getId(), day)) {
                 result.add(doc);
             }
         }
         return result;
     }
+
+    private static AvailabilityEngine availability() {
+        return AppointmentRepository.getInstance().getAvailability();
+    }
 }
\ No newline at end of file
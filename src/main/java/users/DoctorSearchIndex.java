@@ -0,0 +1,166 @@
+package users;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Substring search over doctor names, specializations and emails. Every 1, 2 and 3
+// character substring of the lower-cased fields maps to a sorted list of doctor numbers,
+// so a query of up to 3 characters is a single lookup and a longer one intersects the
+// lists of its trigrams, then checks the few survivors. Fields are normalized once
+// when the doctor is added, not on every search.
+public class DoctorSearchIndex {
+    private static final int GRAM = 3;
+
+    // Field weights for ranking, a name hit counts most
+    private static final int NAME = 3;
+    private static final int SPECIALIZATION = 2;
+    private static final int EMAIL = 1;
+
+    private final List<Doctor> doctors = new ArrayList<>();
+    private final List<String[]> normalized = new ArrayList<>();
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Doctor numbers containing one gram, in ascending order
+    private static class Posting {
+        int[] numbers = new int[2];
+        int size;
+
+        void add(int number) {
+            // Doctors are numbered in order, so a repeat can only be the last entry
+            if (size > 0 && numbers[size - 1] == number) {
+                return;
+            }
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+    }
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public void addAll(Collection<Doctor> added) {
+        lock.writeLock().lock();
+        try {
+            for (Doctor doctor : added) {
+                int number = doctors.size();
+                String[] fields = {normalize(doctor.getName()), normalize(doctor.getSpecialization()),
+                        normalize(doctor.getEmail())};
+                doctors.add(doctor);
+                normalized.add(fields);
+                for (String field : fields) {
+                    for (int start = 0; start < field.length(); start++) {
+                        for (int end = start + 1; end <= Math.min(start + GRAM, field.length()); end++) {
+                            postings.computeIfAbsent(field.substring(start, end), k -> new Posting()).add(number);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Doctors whose name, specialization or email contains the text, best matches first
+    public List<Doctor> search(String text) {
+        String query = normalize(text);
+        if (query.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(query);
+            List<Doctor> result = new ArrayList<>();
+            if (candidates == null) {
+                return result;
+            }
+
+            List<int[]> scored = new ArrayList<>();
+            for (int number : candidates) {
+                int score = score(normalized.get(number), query);
+                if (score > 0) {
+                    scored.add(new int[]{number, score});
+                }
+            }
+            scored.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1])
+                    : normalized.get(a[0])[0].compareTo(normalized.get(b[0])[0]));
+            for (int[] entry : scored) {
+                result.add(doctors.get(entry[0]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Doctors that contain every gram of the query, null when none do
+    private int[] candidates(String query) {
+        if (query.length() <= GRAM) {
+            return posting(query);
+        }
+
+        List<int[]> lists = new ArrayList<>();
+        for (int start = 0; start + GRAM <= query.length(); start++) {
+            int[] list = posting(query.substring(start, start + GRAM));
+            if (list == null) {
+                return null;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+
+        int[] result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private int[] posting(String gram) {
+        Posting posting = postings.get(gram);
+        return posting == null ? null : Arrays.copyOf(posting.numbers, posting.size);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // Best field hit: start of the field > start of a word > anywhere, times the field weight.
+    // Zero when the trigrams matched but the text itself doesn't occur.
+    private static int score(String[] fields, String query) {
+        int[] weights = {NAME, SPECIALIZATION, EMAIL};
+        int best = 0;
+        for (int f = 0; f < fields.length; f++) {
+            String field = fields[f];
+            int at = field.indexOf(query);
+            int hit = 0;
+            while (at >= 0 && hit < 3) {
+                char before = at == 0 ? ' ' : field.charAt(at - 1);
+                hit = Math.max(hit, at == 0 ? 3 : Character.isLetterOrDigit(before) ? 1 : 2);
+                at = field.indexOf(query, at + 1);
+            }
+            best = Math.max(best, hit * weights[f]);
+        }
+        return best;
+    }
+}
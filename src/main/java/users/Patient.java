@@ -1,15 +1,16 @@
 package users;
 
 import appointments.Appointment;
+import appointments.AppointmentRepository;
+import database.IdGenerator;
 import java.util.*;
 
 public class Patient extends User {
     private String[] medicalHistory;
-    private static int patientCounter = 1000;
 
     // Constructor overloading
     public Patient(String name) {
-        this.id = "P" + (++patientCounter);
+        this.id = IdGenerator.nextId("P");
         this.name = name;
         this.medicalHistory = new String[0];
     }
@@ -24,6 +25,21 @@ public class Patient extends User {
         this.password = password;
     }
 
+    // A patient that already has an id, so none is generated
+    public Patient(String id, String name, String email, String password) {
+        super(id, name, email, password);
+        this.medicalHistory = new String[0];
+    }
+
+    // Patient from a stored user record: id, name, email, password, ...
+    // Null when the record is too short.
+    public static Patient fromRecord(String[] record) {
+        if (record.length < 4) {
+            return null;
+        }
+        return new Patient(record[0], record[1], record[2], record[3]);
+    }
+
     // Getters and Setters
     public String[] getMedicalHistory() { return medicalHistory; }
     public void setMedicalHistory(String[] medicalHistory) {
@@ -48,15 +64,7 @@ public class Patient extends User {
     }
 
     public List<Appointment> viewAppointments() {
-        List<Appointment> appointments = Appointment.loadAppointmentsFromFile();
-        List<Appointment> patientAppointments = new ArrayList<>();
-
-        for (Appointment app : appointments) {
-            if (app.getPatientId().equals(this.id)) {
-                patientAppointments.add(app);
-            }
-        }
-        return patientAppointments;
+        return AppointmentRepository.getInstance().findByPatient(this.id);
     }
 
     public void addToMedicalHistory(String record) {
@@ -0,0 +1,68 @@
+package users;
+
+import java.util.*;
+
+// Specialization -> doctors posting lists, keys case-folded and trimmed so "dentist"
+// and "Dentist " land together. Copy-on-write like UserDirectory: lookups read the
+// current snapshot without locking, adding doctors swaps in a new one.
+public class SpecializationIndex {
+
+    private static class Snapshot {
+        final Map<String, List<Doctor>> postings;
+        // Display spelling per key, the first one seen, sorted for the combo box
+        final List<String> names;
+
+        Snapshot(Map<String, List<Doctor>> postings, List<String> names) {
+            this.postings = postings;
+            this.names = Collections.unmodifiableList(names);
+        }
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(new HashMap<>(), new ArrayList<>());
+
+    public static String fold(String specialization) {
+        return specialization == null ? "" : specialization.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized void addAll(Collection<Doctor> doctors) {
+        if (doctors.isEmpty()) {
+            return;
+        }
+        Snapshot current = snapshot;
+        Map<String, List<Doctor>> postings = new HashMap<>(current.postings);
+        List<String> names = new ArrayList<>(current.names);
+        // Only the lists that change are copied
+        Map<String, List<Doctor>> changed = new HashMap<>();
+        for (Doctor doctor : doctors) {
+            String key = fold(doctor.getSpecialization());
+            if (key.isEmpty()) {
+                continue;
+            }
+            List<Doctor> list = changed.get(key);
+            if (list == null) {
+                List<Doctor> old = postings.get(key);
+                if (old == null) {
+                    names.add(doctor.getSpecialization().trim());
+                }
+                list = old == null ? new ArrayList<>() : new ArrayList<>(old);
+                changed.put(key, list);
+            }
+            list.add(doctor);
+        }
+        for (Map.Entry<String, List<Doctor>> entry : changed.entrySet()) {
+            postings.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        names.sort(String.CASE_INSENSITIVE_ORDER);
+        snapshot = new Snapshot(postings, names);
+    }
+
+    // Read-only posting list, empty when nobody has the specialization
+    public List<Doctor> find(String specialization) {
+        List<Doctor> doctors = snapshot.postings.get(fold(specialization));
+        return doctors == null ? Collections.emptyList() : doctors;
+    }
+
+    public List<String> getSpecializations() {
+        return snapshot.names;
+    }
+}
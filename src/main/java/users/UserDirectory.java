@@ -0,0 +1,58 @@
+package users;
+
+import java.util.*;
+
+// Users of one kind with an id -> user lookup. Readers get the current immutable snapshot
+// without locking or copying; adding users builds a new snapshot and swaps it in.
+public class UserDirectory<T extends User> {
+
+    private static class Snapshot<T> {
+        final List<T> all;
+        final Map<String, T> byId;
+
+        Snapshot(List<T> all, Map<String, T> byId) {
+            this.all = Collections.unmodifiableList(all);
+            this.byId = Collections.unmodifiableMap(byId);
+        }
+    }
+
+    private volatile Snapshot<T> snapshot = new Snapshot<>(new ArrayList<>(), new HashMap<>());
+
+    public void add(T user) {
+        addAll(Collections.singletonList(user));
+    }
+
+    // One copy for the whole batch, used when loading from file
+    public synchronized void addAll(Collection<? extends T> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Snapshot<T> current = snapshot;
+        List<T> all = new ArrayList<>(current.all.size() + users.size());
+        all.addAll(current.all);
+        Map<String, T> byId = new HashMap<>(current.byId);
+        for (T user : users) {
+            all.add(user);
+            // First user wins for a duplicated id, same as the email index
+            byId.putIfAbsent(user.getId(), user);
+        }
+        snapshot = new Snapshot<>(all, byId);
+    }
+
+    public T findById(String id) {
+        return id == null ? null : snapshot.byId.get(id);
+    }
+
+    // Read-only view, safe to iterate while users are being added
+    public List<T> getAll() {
+        return snapshot.all;
+    }
+
+    public int size() {
+        return snapshot.all.size();
+    }
+
+    public boolean isEmpty() {
+        return snapshot.all.isEmpty();
+    }
+}
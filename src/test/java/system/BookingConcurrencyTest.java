@@ -0,0 +1,83 @@
+package system;
+
+import appointments.Appointment;
+import appointments.AppointmentRepository;
+import appointments.SlotOccupancy;
+import exceptions.SlotFullException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import users.Doctor;
+import users.Patient;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Many patients race for the same doctor, date and slot: exactly one may get it
+public class BookingConcurrencyTest {
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 20;
+
+    private static HealthCareSystem system;
+    private static List<Patient> patients = new ArrayList<>();
+
+    @BeforeAll
+    static void createSystem() throws Exception {
+        // The build runs tests in an emptied directory, so the data files start out fresh
+        system = new HealthCareSystem();
+        for (int i = 0; i < THREADS; i++) {
+            patients.add(system.registerPatient("Patient " + i, "patient" + i + "@test.com", "pass"));
+        }
+    }
+
+    @Test
+    void onlyOneBookingWinsEachSlot() throws Exception {
+        Doctor doctor = system.getAllDoctors().get(0);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                // Mondays, so the default schedule has the doctor working
+                String date = LocalDate.of(2030, 1, 7).plusWeeks(round).toString();
+                String slot = SlotOccupancy.TIME_SLOTS[round % SlotOccupancy.TIME_SLOTS.length];
+
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicInteger booked = new AtomicInteger();
+                AtomicInteger slotFull = new AtomicInteger();
+                List<Future<?>> results = new ArrayList<>();
+                for (Patient patient : patients) {
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        try {
+                            system.bookAppointment(patient, doctor, date, slot, "Checkup");
+                            booked.incrementAndGet();
+                        } catch (SlotFullException e) {
+                            slotFull.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> result : results) {
+                    result.get(30, TimeUnit.SECONDS);
+                }
+
+                assertEquals(1, booked.get(), "bookings for " + date + " " + slot);
+                assertEquals(THREADS - 1, slotFull.get(), "rejected for " + date + " " + slot);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // And exactly one stored appointment per slot
+        Set<String> seen = new HashSet<>();
+        for (Appointment appointment : AppointmentRepository.getInstance().findByDoctor(doctor.getId())) {
+            assertTrue(seen.add(appointment.getDate() + " " + appointment.getTimeSlot()),
+                    "double booking at " + appointment.getDate() + " " + appointment.getTimeSlot());
+        }
+        assertEquals(ROUNDS, seen.size());
+    }
+}